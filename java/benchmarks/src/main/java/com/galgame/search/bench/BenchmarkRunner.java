@@ -0,0 +1,45 @@
+package com.galgame.search.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Runs the benchmarks with the GC profiler (allocation rate per operation next to throughput)
+ * and stores the JSON results as {@code results/<label>-<timestamp>.json}, to be compared
+ * with {@link CompareResults}.
+ *
+ * <pre>
+ * java -Dbench.label=v1.2 -jar target/benchmarks.jar [benchmark regex]
+ * </pre>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String include = args.length > 0 ? args[0] : BenchmarkRunner.class.getPackageName() + ".*";
+        String label = System.getProperty("bench.label", "dev");
+        Path dir = Path.of(System.getProperty("bench.results", "results"));
+        Files.createDirectories(dir);
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path out = dir.resolve(label + "-" + stamp + ".json");
+
+        Options options = new OptionsBuilder()
+            .include(include)
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result(out.toString())
+            .build();
+        new Runner(options).run();
+        System.out.println("Results saved to " + out.toAbsolutePath());
+    }
+}
@@ -0,0 +1,89 @@
+package com.galgame.search.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files benchmark by benchmark: throughput and bytes allocated
+ * per operation. Changes worse than the threshold are marked, and the exit status is 1 if
+ * there is any, so the comparison can gate a build.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.galgame.search.bench.CompareResults baseline.json current.json [threshold%]
+ * </pre>
+ */
+public final class CompareResults {
+
+    private static final String ALLOC_NORM = "gc.alloc.rate.norm";
+
+    private record Score(double opsPerUnit, double allocBytesPerOp) {}
+
+    private CompareResults() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CompareResults <baseline.json> <current.json> [threshold%]");
+            System.exit(2);
+        }
+        Map<String, Score> baseline = read(Path.of(args[0]));
+        Map<String, Score> current = read(Path.of(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %8s %12s %12s %8s%n",
+            "benchmark", "base", "current", "Δ", "base B/op", "B/op", "Δ");
+        for (Map.Entry<String, Score> e : current.entrySet()) {
+            Score base = baseline.get(e.getKey());
+            Score now = e.getValue();
+            if (base == null) {
+                System.out.printf("%-70s %14s %14.1f%n", e.getKey(), "-", now.opsPerUnit());
+                continue;
+            }
+            double speed = percent(base.opsPerUnit(), now.opsPerUnit());
+            double alloc = percent(base.allocBytesPerOp(), now.allocBytesPerOp());
+            // Throughput: lower is worse; allocation: higher is worse
+            boolean slower = speed < -threshold;
+            boolean fatter = alloc > threshold;
+            if (slower || fatter) regressions++;
+            System.out.printf("%-70s %14.1f %14.1f %7.1f%%%s %12.0f %12.0f %7.1f%%%s%n",
+                e.getKey(), base.opsPerUnit(), now.opsPerUnit(), speed, slower ? "!" : " ",
+                base.allocBytesPerOp(), now.allocBytesPerOp(), alloc, fatter ? "!" : " ");
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " regression(s) beyond " + threshold + "%");
+            System.exit(1);
+        }
+    }
+
+    // Keyed by benchmark name plus parameters
+    private static Map<String, Score> read(Path file) throws IOException {
+        JsonNode root = new ObjectMapper().readTree(file.toFile());
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode run : root) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText()
+                .replace(CompareResults.class.getPackageName() + ".", ""));
+            JsonNode params = run.path("params");
+            if (params.isObject()) {
+                Map<String, String> sorted = new TreeMap<>();
+                params.fields().forEachRemaining(p -> sorted.put(p.getKey(), p.getValue().asText()));
+                key.append(sorted);
+            }
+            double ops = run.path("primaryMetric").path("score").asDouble();
+            double alloc = run.path("secondaryMetrics").path(ALLOC_NORM).path("score").asDouble(Double.NaN);
+            scores.put(key.toString(), new Score(ops, alloc));
+        }
+        return scores;
+    }
+
+    private static double percent(double base, double now) {
+        if (Double.isNaN(base) || Double.isNaN(now) || base == 0) return 0;
+        return (now - base) / base * 100;
+    }
+}
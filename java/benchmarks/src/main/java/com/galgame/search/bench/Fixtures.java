@@ -0,0 +1,28 @@
+package com.galgame.search.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Response bodies shaped like the real ones (a full Nyaa RSS page, a TouchGal /search page
+ * and a /patch/resource list), loaded from the classpath.
+ */
+final class Fixtures {
+
+    static final String NYAA_SEARCH = "nyaa-search.xml";
+    static final String TOUCHGAL_SEARCH = "touchgal-search.json";
+    static final String TOUCHGAL_RESOURCES = "touchgal-resources.json";
+
+    private Fixtures() {
+    }
+
+    static byte[] bytes(String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) throw new IllegalArgumentException("No fixture " + name);
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.galgame.search.bench;
+
+import com.galgame.search.model.Game;
+import com.galgame.search.service.AggregatedService;
+import com.galgame.search.service.NyaaSource;
+import com.galgame.search.service.SearchCache;
+import com.galgame.search.service.SearchResult;
+import com.galgame.search.service.SourceResult;
+import com.galgame.search.service.TouchGalService;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end load test of the search pipeline: the real {@link TouchGalService} and
+ * {@link NyaaSource} behind an {@link AggregatedService}, pointed at an
+ * {@link UpstreamSimulator}, driven by concurrent simulated users. Each user searches a
+ * random keyword from a fixed pool (so the search cache sees realistic repeats) and
+ * sometimes opens the resources of the first result.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.galgame.search.bench.LoadHarness \
+ *     --users=64 --duration=60 --search=latency=lognormal:150:2000,errors=0.05 --nyaa=items=500
+ * </pre>
+ *
+ * Options: {@code --users}, {@code --duration} and {@code --warmup} (seconds),
+ * {@code --keywords} (pool size), {@code --think} (ms between a user's searches),
+ * {@code --resources} (share of searches followed by a resource load), {@code --budget} and
+ * {@code --timeout} (seconds, the service's search budget and source timeout), {@code --rate}
+ * (requests per second allowed per source; 0, the default, turns the rate limits off), and
+ * {@link UpstreamSimulator.Behavior} specs per endpoint: {@code --search}, {@code --resource},
+ * {@code --nyaa}, or {@code --all}. {@code --metrics=FILE} also prints the service's own
+ * metrics (per-source stage latencies and outcomes) and exports them to FILE as JSON.
+ * {@code --serve=PORT} only runs the simulator.
+ */
+public final class LoadHarness {
+
+    /** Latencies in microseconds; synchronized appends, sorted once for the report. */
+    private static final class Recorder {
+        private long[] values = new long[1024];
+        private int size;
+
+        synchronized void add(long micros) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = micros;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parse(args);
+
+        try (UpstreamSimulator sim = new UpstreamSimulator(Integer.parseInt(opts.getOrDefault("serve", "0")))) {
+            configure(sim, opts);
+            if (opts.containsKey("serve")) {
+                System.out.println("Simulating TouchGal at " + sim.touchGalUrl() + " and Nyaa at " + sim.nyaaUrl());
+                Thread.currentThread().join();
+            }
+            run(sim, opts);
+        }
+    }
+
+    private static void run(UpstreamSimulator sim, Map<String, String> opts) throws Exception {
+        int users = Integer.parseInt(opts.getOrDefault("users", "32"));
+        long durationMillis = (long) (Double.parseDouble(opts.getOrDefault("duration", "30")) * 1000);
+        long warmupMillis = (long) (Double.parseDouble(opts.getOrDefault("warmup", "5")) * 1000);
+        int keywordCount = Integer.parseInt(opts.getOrDefault("keywords", "500"));
+        long thinkMillis = Long.parseLong(opts.getOrDefault("think", "0"));
+        double resourceShare = Double.parseDouble(opts.getOrDefault("resources", "0.2"));
+
+        AggregatedService service = new AggregatedService(Files.createTempDirectory("galgame-load"), transport -> List.of(
+            new TouchGalService(transport, sim.touchGalUrl()),
+            new NyaaSource(transport, sim.nyaaUrl())));
+        service.setSearchBudget(Duration.ofMillis((long) (Double.parseDouble(opts.getOrDefault("budget", "10")) * 1000)));
+        service.setDefaultSourceTimeout(Duration.ofMillis((long) (Double.parseDouble(opts.getOrDefault("timeout", "8")) * 1000)));
+        double rate = Double.parseDouble(opts.getOrDefault("rate", "0"));
+        for (String source : service.getSourceNames()) {
+            service.setRateLimit(source, rate, (int) Math.max(1, Math.ceil(rate * 2)));
+        }
+
+        System.out.println("Upstream:");
+        for (UpstreamSimulator.Endpoint e : UpstreamSimulator.Endpoint.values()) {
+            System.out.printf(Locale.ROOT, "  %-8s %s%n", e, sim.behavior(e));
+        }
+        System.out.printf(Locale.ROOT, "%d users, %d keywords, %.0fs warm-up + %.0fs measured%n%n",
+            users, keywordCount, warmupMillis / 1000.0, durationMillis / 1000.0);
+
+        Recorder searches = new Recorder();
+        Recorder resourceLoads = new Recorder();
+        Map<String, AtomicLong> outcomes = new ConcurrentHashMap<>();
+        AtomicLong resourceFailures = new AtomicLong();
+        ResourceSampler sampler = new ResourceSampler();
+
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.MILLISECONDS.toNanos(warmupMillis);
+        long end = measureFrom + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            pool.submit(() -> {
+                sampler.sampleUntil(measureFrom, end);
+                return null;
+            });
+            for (int u = 0; u < users; u++) {
+                pool.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < end) {
+                        String keyword = "galgame " + random.nextInt(keywordCount);
+                        long t0 = System.nanoTime();
+                        SearchResult result = service.searchAll(keyword);
+                        long t1 = System.nanoTime();
+                        boolean measured = t0 >= measureFrom && t1 <= end;
+                        if (measured) {
+                            searches.add(TimeUnit.NANOSECONDS.toMicros(t1 - t0));
+                            for (SourceResult r : result.sources()) {
+                                outcomes.computeIfAbsent(r.source() + " " + r.status(), k -> new AtomicLong()).incrementAndGet();
+                            }
+                        }
+                        if (!result.games().isEmpty() && random.nextDouble() < resourceShare) {
+                            Game first = result.games().get(0);
+                            try {
+                                service.getDownloads(first);
+                                if (measured) resourceLoads.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - t1));
+                            } catch (Exception e) {
+                                if (measured) resourceFailures.incrementAndGet();
+                            }
+                        }
+                        if (thinkMillis > 0) Thread.sleep(thinkMillis);
+                    }
+                    return null;
+                });
+            }
+        }
+
+        double seconds = durationMillis / 1000.0;
+        report("searchAll", searches.sorted(), seconds);
+        report("resources", resourceLoads.sorted(), seconds);
+        if (resourceFailures.get() > 0) System.out.println("  resource loads failed: " + resourceFailures.get());
+
+        System.out.println("\nSource outcomes:");
+        new TreeMap<>(outcomes).forEach((k, v) -> System.out.printf(Locale.ROOT, "  %-22s %d%n", k, v.get()));
+
+        SearchCache cache = service.getCache();
+        long lookups = cache.getHitCount() + cache.getMissCount();
+        System.out.printf(Locale.ROOT, "%nSearch cache: %.1f%% hits (%d stale)%n",
+            lookups == 0 ? 0 : cache.getHitCount() * 100.0 / lookups, cache.getStaleHitCount());
+        System.out.println("Transport: " + service.getTransport().getStats());
+        System.out.println("Upstream requests:");
+        for (UpstreamSimulator.Endpoint e : UpstreamSimulator.Endpoint.values()) {
+            UpstreamSimulator.Counters c = sim.counters(e);
+            System.out.printf(Locale.ROOT, "  %-8s %d requests, %d errors, %d hangs, %d not modified, %d KB sent%n",
+                e, c.requests(), c.errors(), c.hangs(), c.notModified(), c.bytesSent() / 1024);
+        }
+        sampler.report(seconds);
+        if (opts.containsKey("metrics")) {
+            System.out.println("\nService metrics:\n" + service.getMetrics().format());
+            service.getMetrics().export(Path.of(opts.get("metrics")));
+        }
+        service.shutdown();
+    }
+
+    private static void configure(UpstreamSimulator sim, Map<String, String> opts) {
+        Map<String, UpstreamSimulator.Endpoint> keys = new LinkedHashMap<>();
+        keys.put("search", UpstreamSimulator.Endpoint.SEARCH);
+        keys.put("resource", UpstreamSimulator.Endpoint.RESOURCE);
+        keys.put("nyaa", UpstreamSimulator.Endpoint.NYAA);
+        for (UpstreamSimulator.Endpoint e : UpstreamSimulator.Endpoint.values()) {
+            sim.setBehavior(e, sim.behavior(e).with(opts.getOrDefault("all", "")));
+        }
+        keys.forEach((key, e) -> {
+            if (opts.containsKey(key)) sim.setBehavior(e, sim.behavior(e).with(opts.get(key)));
+        });
+    }
+
+    // The background catalogue crawl would add its own traffic to the measurement
+    private static void report(String name, long[] micros, double seconds) {
+        if (micros.length == 0) {
+            System.out.println(name + ": no samples");
+            return;
+        }
+        System.out.printf(Locale.ROOT, "%-10s %8.1f ops/s   p50 %7.1fms   p90 %7.1fms   p99 %7.1fms   max %7.1fms   (%d samples)%n",
+            name, micros.length / seconds, percentile(micros, 50) / 1000.0, percentile(micros, 90) / 1000.0,
+            percentile(micros, 99) / 1000.0, micros[micros.length - 1] / 1000.0, micros.length);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int i = (int) Math.ceil(p / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> opts = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Unexpected argument: " + arg);
+            String[] kv = arg.substring(2).split("=", 2);
+            opts.put(kv[0], kv.length > 1 ? kv[1] : "");
+        }
+        return opts;
+    }
+
+    /**
+     * CPU, heap and GC use of this JVM (harness, service and simulator together) over the
+     * measured interval.
+     */
+    private static final class ResourceSampler {
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private long cpuNanosAtStart;
+        private long cpuNanosAtEnd;
+        private long gcCountAtStart;
+        private long gcMillisAtStart;
+        private long gcCount;
+        private long gcMillis;
+        private long peakHeap;
+        private long heapSum;
+        private int heapSamples;
+        private int peakThreads;
+
+        void sampleUntil(long startNanos, long endNanos) throws InterruptedException {
+            sleepUntil(startNanos);
+            cpuNanosAtStart = processCpuNanos();
+            gcCountAtStart = gcCount();
+            gcMillisAtStart = gcMillis();
+            while (System.nanoTime() < endNanos) {
+                long heap = memory.getHeapMemoryUsage().getUsed();
+                peakHeap = Math.max(peakHeap, heap);
+                heapSum += heap;
+                heapSamples++;
+                peakThreads = Math.max(peakThreads, ManagementFactory.getThreadMXBean().getThreadCount());
+                Thread.sleep(100);
+            }
+            cpuNanosAtEnd = processCpuNanos();
+            gcCount = gcCount() - gcCountAtStart;
+            gcMillis = gcMillis() - gcMillisAtStart;
+        }
+
+        void report(double seconds) {
+            int cores = Runtime.getRuntime().availableProcessors();
+            double cpuSeconds = (cpuNanosAtEnd - cpuNanosAtStart) / 1e9;
+            System.out.printf(Locale.ROOT,
+                "Resources: CPU %.1fs (%.0f%% of %d cores), heap avg %d MB / peak %d MB, %d GCs (%d ms), peak %d platform threads%n",
+                cpuSeconds, cpuSeconds / seconds / cores * 100, cores,
+                heapSamples == 0 ? 0 : heapSum / heapSamples / (1024 * 1024), peakHeap / (1024 * 1024),
+                gcCount, gcMillis, peakThreads);
+        }
+
+        private static void sleepUntil(long nanos) throws InterruptedException {
+            long wait = nanos - System.nanoTime();
+            if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+        }
+
+        private static long processCpuNanos() {
+            if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+                return os.getProcessCpuTime();
+            }
+            return 0;
+        }
+
+        private static long gcCount() {
+            long n = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) n += Math.max(0, gc.getCollectionCount());
+            return n;
+        }
+
+        private static long gcMillis() {
+            long n = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) n += Math.max(0, gc.getCollectionTime());
+            return n;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.galgame.search.bench;
+
+import com.galgame.search.model.Resource;
+import com.galgame.search.service.NyaaSource;
+import com.galgame.search.service.SearchPage;
+import com.galgame.search.service.TouchGalService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of one response body per source, from memory, without any network.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParsingBenchmark {
+
+    private byte[] nyaaFeed;
+    private byte[] touchGalSearch;
+    private byte[] touchGalResources;
+    private TouchGalService touchGal;
+
+    @Setup
+    public void setUp() {
+        nyaaFeed = Fixtures.bytes(Fixtures.NYAA_SEARCH);
+        touchGalSearch = Fixtures.bytes(Fixtures.TOUCHGAL_SEARCH);
+        touchGalResources = Fixtures.bytes(Fixtures.TOUCHGAL_RESOURCES);
+        touchGal = new TouchGalService();
+    }
+
+    @Benchmark
+    public void nyaaRss(Blackhole bh) throws Exception {
+        NyaaSource.parseFeed(new ByteArrayInputStream(nyaaFeed), bh::consume);
+    }
+
+    @Benchmark
+    public SearchPage touchGalSearch() throws IOException {
+        return touchGal.parseSearchResponse(new ByteArrayInputStream(touchGalSearch), 1);
+    }
+
+    @Benchmark
+    public List<Resource> touchGalResources() throws IOException {
+        return touchGal.parseResourceResponse(new ByteArrayInputStream(touchGalResources));
+    }
+}
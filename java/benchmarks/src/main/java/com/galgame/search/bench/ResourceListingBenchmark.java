@@ -0,0 +1,61 @@
+package com.galgame.search.bench;
+
+import com.galgame.search.model.Resource;
+import com.galgame.search.service.TouchGalService;
+import com.galgame.search.ui.ResourceListing;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the detail pane computes before it builds any node: classifying and sorting a
+ * resource list once, looking up a category afterwards (a tab switch), the one-off
+ * filter and sort of a single category, and the link splitting of every resource card.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResourceListingBenchmark {
+
+    @Param({ResourceListing.CATEGORY_GAME, ResourceListing.CATEGORY_PATCH, ResourceListing.CATEGORY_SAVE})
+    public String category;
+
+    private List<Resource> resources;
+    private ResourceListing listing;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] body = Fixtures.bytes(Fixtures.TOUCHGAL_RESOURCES);
+        resources = new TouchGalService().parseResourceResponse(new ByteArrayInputStream(body));
+        listing = ResourceListing.of(resources);
+    }
+
+    @Benchmark
+    public ResourceListing classify() {
+        return ResourceListing.of(resources);
+    }
+
+    @Benchmark
+    public List<Resource> switchCategory() {
+        return listing.resources(category);
+    }
+
+    @Benchmark
+    public List<Resource> filterAndSort() {
+        return ResourceListing.select(resources, category);
+    }
+
+    @Benchmark
+    public void splitLinks(Blackhole bh) {
+        for (Resource r : listing.resources(category)) {
+            bh.consume(ResourceListing.links(r.getContentString()));
+        }
+    }
+}
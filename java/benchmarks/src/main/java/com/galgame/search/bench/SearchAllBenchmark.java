@@ -0,0 +1,85 @@
+package com.galgame.search.bench;
+
+import com.galgame.search.model.Game;
+import com.galgame.search.model.Resource;
+import com.galgame.search.service.AggregatedService;
+import com.galgame.search.service.GameSource;
+import com.galgame.search.service.NyaaSource;
+import com.galgame.search.service.SearchResult;
+import com.galgame.search.service.TouchGalService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AggregatedService#searchAll} fanning out to in-process stub sources that answer
+ * with the fixture pages, so only the service's own overhead (executor hand-off, deadlines,
+ * caching, snapshot writes) and an optional fixed source latency are measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchAllBenchmark {
+
+    @Param({"0", "5"})
+    public int sourceLatencyMillis;
+
+    private AggregatedService service;
+    private long queries;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<Game> nyaaGames = new ArrayList<>();
+        NyaaSource.parseFeed(new ByteArrayInputStream(Fixtures.bytes(Fixtures.NYAA_SEARCH)), nyaaGames::add);
+        List<Game> touchGalGames = new TouchGalService()
+            .parseSearchResponse(new ByteArrayInputStream(Fixtures.bytes(Fixtures.TOUCHGAL_SEARCH)), 1).games();
+
+        service = new AggregatedService(Files.createTempDirectory("galgame-bench"), transport -> List.of(
+            new StubSource("TouchGal", touchGalGames, sourceLatencyMillis),
+            new StubSource("Nyaa", nyaaGames, sourceLatencyMillis)));
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    /** Every query is new: all sources are asked and the results are cached and saved. */
+    @Benchmark
+    public SearchResult uncached() {
+        return service.searchAll("summer " + queries++);
+    }
+
+    /** The same query again: answered from the search cache. */
+    @Benchmark
+    public SearchResult cached() {
+        return service.searchAll("summer");
+    }
+
+    private record StubSource(String name, List<Game> games, int latencyMillis) implements GameSource {
+
+        @Override
+        public List<Game> searchGame(String keyword) throws InterruptedException {
+            if (latencyMillis > 0) Thread.sleep(latencyMillis);
+            return games;
+        }
+
+        @Override
+        public List<Resource> getDownloads(String id) throws IOException {
+            return List.of();
+        }
+
+        @Override
+        public String getSourceName() {
+            return name;
+        }
+    }
+}
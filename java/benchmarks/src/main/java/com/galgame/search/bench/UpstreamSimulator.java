@@ -0,0 +1,370 @@
+package com.galgame.search.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand-in for the upstream sites: TouchGal's {@code /api/search} and
+ * {@code /api/patch/resource} and Nyaa's RSS search, served by the JDK {@link HttpServer}
+ * on virtual threads. Each endpoint follows a {@link Behavior}: a latency distribution,
+ * error and hang rates, payload size, bandwidth and compression. Behaviors can be changed
+ * while the server runs.
+ *
+ * <p>Bodies are generated once per payload size and carry an ETag, so conditional requests
+ * are answered with 304 like the real sites do.
+ */
+public final class UpstreamSimulator implements AutoCloseable {
+
+    public enum Endpoint { SEARCH, RESOURCE, NYAA }
+
+    /**
+     * Latency of one response, sampled per request.
+     * Specs: {@code fixed:MS}, {@code uniform:MIN:MAX}, {@code lognormal:MEDIAN:P99},
+     * {@code spike:BASE:SPIKE:PROBABILITY}.
+     */
+    public record Latency(String kind, double a, double b, double c) {
+
+        // z-score of the 99th percentile of a standard normal distribution
+        private static final double Z99 = 2.326;
+
+        public static Latency parse(String spec) {
+            String[] p = spec.split(":");
+            double[] v = new double[3];
+            for (int i = 1; i < p.length && i <= 3; i++) v[i - 1] = Double.parseDouble(p[i]);
+            Latency latency = new Latency(p[0].toLowerCase(Locale.ROOT), v[0], v[1], v[2]);
+            latency.sampleMillis(ThreadLocalRandom.current()); // Rejects unknown kinds early
+            return latency;
+        }
+
+        public long sampleMillis(RandomGenerator random) {
+            double ms = switch (kind) {
+                case "fixed" -> a;
+                case "uniform" -> a + random.nextDouble() * (b - a);
+                case "lognormal" -> {
+                    double sigma = b > a ? Math.log(b / a) / Z99 : 0;
+                    yield a * Math.exp(sigma * random.nextGaussian());
+                }
+                case "spike" -> random.nextDouble() < c ? b : a;
+                default -> throw new IllegalArgumentException("Unknown latency distribution: " + kind);
+            };
+            return Math.max(0, Math.round(ms));
+        }
+
+        @Override
+        public String toString() {
+            return switch (kind) {
+                case "fixed" -> "fixed " + (long) a + "ms";
+                case "uniform" -> "uniform " + (long) a + "-" + (long) b + "ms";
+                case "lognormal" -> "lognormal p50 " + (long) a + "ms p99 " + (long) b + "ms";
+                default -> "spike " + (long) a + "ms, " + (long) b + "ms at " + c;
+            };
+        }
+    }
+
+    /**
+     * How an endpoint answers.
+     *
+     * @param errorRate     share of requests answered with HTTP 503
+     * @param hangRate      share of requests that get no response for a minute
+     * @param items         games, resources or torrents per response
+     * @param textChars     length of each game's introduction (TouchGal search only)
+     * @param bandwidthKBps body write speed, or 0 for unlimited
+     * @param gzip          whether to compress when the client accepts it
+     */
+    public record Behavior(Latency latency, double errorRate, double hangRate, int items, int textChars,
+                           int bandwidthKBps, boolean gzip) {
+
+        public static Behavior defaults(Endpoint endpoint) {
+            return switch (endpoint) {
+                case SEARCH -> new Behavior(Latency.parse("lognormal:120:600"), 0, 0, 15, 300, 0, true);
+                case RESOURCE -> new Behavior(Latency.parse("lognormal:80:400"), 0, 0, 12, 0, 0, true);
+                case NYAA -> new Behavior(Latency.parse("lognormal:200:1200"), 0, 0, 75, 0, 0, false);
+            };
+        }
+
+        /**
+         * Applies a spec such as {@code latency=lognormal:80:900,errors=0.05,items=200} on top of this.
+         */
+        public Behavior with(String spec) {
+            Behavior b = this;
+            for (String part : spec.split(",")) {
+                if (part.isBlank()) continue;
+                String[] kv = part.split("=", 2);
+                if (kv.length != 2) throw new IllegalArgumentException("Expected key=value: " + part);
+                String v = kv[1].trim();
+                b = switch (kv[0].trim()) {
+                    case "latency" -> new Behavior(Latency.parse(v), b.errorRate, b.hangRate, b.items, b.textChars, b.bandwidthKBps, b.gzip);
+                    case "errors" -> new Behavior(b.latency, Double.parseDouble(v), b.hangRate, b.items, b.textChars, b.bandwidthKBps, b.gzip);
+                    case "hangs" -> new Behavior(b.latency, b.errorRate, Double.parseDouble(v), b.items, b.textChars, b.bandwidthKBps, b.gzip);
+                    case "items" -> new Behavior(b.latency, b.errorRate, b.hangRate, Integer.parseInt(v), b.textChars, b.bandwidthKBps, b.gzip);
+                    case "text" -> new Behavior(b.latency, b.errorRate, b.hangRate, b.items, Integer.parseInt(v), b.bandwidthKBps, b.gzip);
+                    case "bandwidth" -> new Behavior(b.latency, b.errorRate, b.hangRate, b.items, b.textChars, Integer.parseInt(v), b.gzip);
+                    case "gzip" -> new Behavior(b.latency, b.errorRate, b.hangRate, b.items, b.textChars, b.bandwidthKBps, Boolean.parseBoolean(v));
+                    default -> throw new IllegalArgumentException("Unknown behavior key: " + kv[0]);
+                };
+            }
+            return b;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s, %.1f%% errors, %.1f%% hangs, %d items%s%s", latency,
+                errorRate * 100, hangRate * 100, items,
+                bandwidthKBps > 0 ? ", " + bandwidthKBps + " KB/s" : "", gzip ? ", gzip" : "");
+        }
+    }
+
+    /** Per-endpoint request counters. */
+    public record Counters(long requests, long errors, long hangs, long notModified, long bytesSent) {}
+
+    private static final long HANG_MILLIS = 60_000;
+    // TouchGal reports this many pages of results for every query
+    private static final int SEARCH_PAGES = 4;
+    private static final int WRITE_CHUNK = 8 * 1024;
+    private static final int VARIANTS = 64;
+    private static final Pattern NYAA_PAGE = Pattern.compile("&p=(\\d+)");
+
+    private final HttpServer server;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<Endpoint, Behavior> behaviors = new ConcurrentHashMap<>();
+    private final Map<Endpoint, AtomicLong[]> counters = new EnumMap<>(Endpoint.class);
+    // Generated bodies by endpoint and payload size
+    private final Map<String, Body> bodies = new ConcurrentHashMap<>();
+
+    private record Body(byte[] plain, byte[] gzipped, String etag, String contentType) {}
+
+    /**
+     * Starts the server on {@code port} of the loopback interface; 0 picks a free port.
+     */
+    public UpstreamSimulator(int port) throws IOException {
+        for (Endpoint e : Endpoint.values()) {
+            behaviors.put(e, Behavior.defaults(e));
+            counters.put(e, new AtomicLong[] {new AtomicLong(), new AtomicLong(), new AtomicLong(), new AtomicLong(), new AtomicLong()});
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/api/search", ex -> handle(ex, Endpoint.SEARCH));
+        server.createContext("/api/patch/resource", ex -> handle(ex, Endpoint.RESOURCE));
+        server.createContext("/", ex -> handle(ex, Endpoint.NYAA));
+        server.start();
+    }
+
+    /** Root URL, e.g. {@code http://127.0.0.1:8123}. */
+    public String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    /** Base URL for {@code TouchGalService}. */
+    public String touchGalUrl() {
+        return baseUrl() + "/api";
+    }
+
+    /** Base URL for {@code NyaaSource}. */
+    public String nyaaUrl() {
+        return baseUrl() + "/";
+    }
+
+    public void setBehavior(Endpoint endpoint, Behavior behavior) {
+        behaviors.put(endpoint, behavior);
+    }
+
+    public Behavior behavior(Endpoint endpoint) {
+        return behaviors.get(endpoint);
+    }
+
+    public Counters counters(Endpoint endpoint) {
+        AtomicLong[] c = counters.get(endpoint);
+        return new Counters(c[0].get(), c[1].get(), c[2].get(), c[3].get(), c[4].get());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange ex, Endpoint endpoint) throws IOException {
+        AtomicLong[] c = counters.get(endpoint);
+        try (ex; InputStream requestBody = ex.getRequestBody()) {
+            if (endpoint == Endpoint.NYAA && !String.valueOf(ex.getRequestURI().getQuery()).contains("page=rss")) {
+                ex.sendResponseHeaders(404, -1);
+                return;
+            }
+            byte[] request = requestBody.readAllBytes();
+            c[0].incrementAndGet();
+            Behavior b = behaviors.get(endpoint);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+
+            Thread.sleep(b.latency().sampleMillis(random));
+            double roll = random.nextDouble();
+            if (roll < b.hangRate()) {
+                c[2].incrementAndGet();
+                Thread.sleep(HANG_MILLIS);
+                return;
+            }
+            if (roll < b.hangRate() + b.errorRate()) {
+                c[1].incrementAndGet();
+                byte[] msg = "{\"message\":\"Service Unavailable\"}".getBytes(StandardCharsets.UTF_8);
+                ex.sendResponseHeaders(503, msg.length);
+                ex.getResponseBody().write(msg);
+                return;
+            }
+
+            Body body = body(endpoint, b, request, ex.getRequestURI());
+            ex.getResponseHeaders().set("Content-Type", body.contentType());
+            ex.getResponseHeaders().set("ETag", body.etag());
+            if (body.etag().equals(ex.getRequestHeaders().getFirst("If-None-Match"))) {
+                c[3].incrementAndGet();
+                ex.sendResponseHeaders(304, -1);
+                return;
+            }
+            String accept = ex.getRequestHeaders().getFirst("Accept-Encoding");
+            byte[] bytes = body.plain();
+            if (b.gzip() && accept != null && accept.contains("gzip")) {
+                ex.getResponseHeaders().set("Content-Encoding", "gzip");
+                bytes = body.gzipped();
+            }
+            ex.sendResponseHeaders(200, bytes.length);
+            write(ex.getResponseBody(), bytes, b.bandwidthKBps());
+            c[4].addAndGet(bytes.length);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // The client gave up (timeout or cancellation) while the response was being written
+        }
+    }
+
+    private static void write(OutputStream out, byte[] bytes, int bandwidthKBps) throws IOException, InterruptedException {
+        if (bandwidthKBps <= 0) {
+            out.write(bytes);
+            return;
+        }
+        long nanosPerChunk = WRITE_CHUNK * 1_000_000_000L / (bandwidthKBps * 1024L);
+        for (int off = 0; off < bytes.length; off += WRITE_CHUNK) {
+            int len = Math.min(WRITE_CHUNK, bytes.length - off);
+            out.write(bytes, off, len);
+            out.flush();
+            Thread.sleep(nanosPerChunk / 1_000_000, (int) (nanosPerChunk % 1_000_000));
+        }
+    }
+
+    private Body body(Endpoint endpoint, Behavior b, byte[] request, URI uri) throws IOException {
+        int page = 1;
+        String query = "";
+        if (endpoint == Endpoint.SEARCH) {
+            JsonNode json = readJson(request);
+            page = Math.max(1, json.path("page").asInt(1));
+            query = json.path("queryString").asText();
+        } else if (endpoint == Endpoint.NYAA) {
+            Matcher m = NYAA_PAGE.matcher(uri.getRawQuery());
+            if (m.find()) page = Integer.parseInt(m.group(1));
+            query = m.replaceAll("");
+        }
+        // Different queries get different (but stable) results, from a bounded set of bodies
+        int variant = Math.floorMod(query.hashCode(), VARIANTS);
+        String key = endpoint + "/" + b.items() + "/" + b.textChars() + "/" + page + "/" + variant;
+        Body cached = bodies.get(key);
+        if (cached != null) return cached;
+        byte[] plain = switch (endpoint) {
+            case SEARCH -> searchBody(b, page, variant);
+            case RESOURCE -> resourceBody(b);
+            case NYAA -> rssBody(b, page, variant);
+        };
+        ByteArrayOutputStream gz = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gz)) {
+            out.write(plain);
+        }
+        String type = endpoint == Endpoint.NYAA ? "application/rss+xml; charset=utf-8" : "application/json";
+        Body created = new Body(plain, gz.toByteArray(), "\"" + Integer.toHexString(key.hashCode()) + "\"", type);
+        bodies.putIfAbsent(key, created);
+        return created;
+    }
+
+    private JsonNode readJson(byte[] request) {
+        try {
+            return mapper.readTree(request);
+        } catch (IOException e) {
+            return mapper.createObjectNode();
+        }
+    }
+
+    private byte[] searchBody(Behavior b, int page, int variant) throws IOException {
+        ObjectNode root = mapper.createObjectNode();
+        ArrayNode games = root.putArray("galgames");
+        String intro = "这是一段用于负载测试的简介。".repeat(b.textChars() / 14 + 1).substring(0, Math.max(0, b.textChars()));
+        int first = variant * 100_000 + (page - 1) * b.items();
+        if (page <= SEARCH_PAGES) {
+            for (int i = 0; i < b.items(); i++) {
+                ObjectNode g = games.addObject();
+                g.put("id", first + i);
+                g.put("name", "Simulated Galgame " + (first + i));
+                g.put("introduction", intro);
+                g.putArray("platform").add("windows");
+                g.putArray("tags").add("纯爱").add("校园");
+                g.put("view", first + i);
+            }
+        }
+        root.put("total", (long) b.items() * SEARCH_PAGES);
+        return mapper.writeValueAsBytes(root);
+    }
+
+    private byte[] resourceBody(Behavior b) throws IOException {
+        ArrayNode list = mapper.createArrayNode();
+        for (int i = 0; i < b.items(); i++) {
+            ObjectNode r = list.addObject();
+            r.put("name", switch (i % 3) {
+                case 0 -> "游戏本体 " + i;
+                case 1 -> "汉化补丁 " + i;
+                default -> "全CG存档 " + i;
+            });
+            r.put("content", "https://pan.example.com/s/" + Integer.toHexString(i * 7919));
+            r.put("password", i % 2 == 0 ? "" : "pw" + i);
+            r.putArray("type").add("pc");
+        }
+        return mapper.writeValueAsBytes(list);
+    }
+
+    private static byte[] rssBody(Behavior b, int page, int variant) {
+        long first = variant * 100_000L + (page - 1) * (long) b.items();
+        StringBuilder sb = new StringBuilder(512 * b.items() + 512);
+        sb.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n")
+          .append("<rss xmlns:atom=\"http://www.w3.org/2005/Atom\" xmlns:nyaa=\"https://nyaa.si/xmlns/nyaa\" version=\"2.0\">\n")
+          .append("<channel><title>Nyaa - Torrent File RSS</title><link>https://nyaa.si/</link>\n");
+        for (int i = 0; i < b.items(); i++) {
+            sb.append("<item><title>[Simulated] Galgame ").append(first + i).append(" v1.0").append(i % 10).append(" [ENG]</title>")
+              .append("<link>https://nyaa.si/download/").append(first + i).append(".torrent</link>")
+              .append("<pubDate>Mon, 10 Jun 2024 12:00:00 -0000</pubDate>")
+              .append("<nyaa:seeders>").append(i % 97).append("</nyaa:seeders>")
+              .append("<nyaa:leechers>").append(i % 13).append("</nyaa:leechers>")
+              .append("<nyaa:downloads>").append(i * 31).append("</nyaa:downloads>")
+              .append("<nyaa:infoHash>").append(String.format("%040x", 0xabcdefL * (first + i + 1))).append("</nyaa:infoHash>")
+              .append("<nyaa:size>").append(1 + i % 20).append(".5 GiB</nyaa:size>")
+              .append("<description><![CDATA[simulated item ").append(i).append("]]></description></item>\n");
+        }
+        sb.append("</channel></rss>\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
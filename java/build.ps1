@@ -1,4 +1,7 @@
 # build.ps1
+# -Benchmarks also builds the JMH module in benchmarks/ against the current sources
+
+param([switch]$Benchmarks)
 
 # Ensure correct working directory
 Set-Location $PSScriptRoot
@@ -21,7 +24,7 @@ java -version
 # 2. Check or Install Maven
 if (Get-Command "mvn" -ErrorAction SilentlyContinue) {
     Write-Host "Maven is already installed." -ForegroundColor Green
-    mvn clean package -DskipTests
+    $MVN = "mvn"
 }
 else {
     Write-Host "Maven not found. Setting up portable Maven..." -ForegroundColor Yellow
@@ -58,10 +61,9 @@ else {
         }
     }
 
-    # Run
     if (Test-Path $MVN_Exec) {
-        Write-Host "Starting Build with Portable Maven..." -ForegroundColor Green
-        & $MVN_Exec clean package -DskipTests
+        Write-Host "Using Portable Maven..." -ForegroundColor Green
+        $MVN = $MVN_Exec
     }
     else {
         Write-Error "Maven executable not found at $MVN_Exec. Setup failed."
@@ -69,4 +71,14 @@ else {
     }
 }
 
+# 3. Run
+& $MVN clean package -DskipTests
+if ($LASTEXITCODE -ne 0) { exit $LASTEXITCODE }
+
+if ($Benchmarks) {
+    Write-Host "Building benchmarks..." -ForegroundColor Green
+    & $MVN -f benchmarks/pom.xml clean package
+    if ($LASTEXITCODE -ne 0) { exit $LASTEXITCODE }
+}
+
 Write-Host "Build complete. Check the 'target' directory for galgame-search.exe" -ForegroundColor Cyan
@@ -0,0 +1,457 @@
+package com.galgame.search.index;
+
+import com.galgame.search.model.Game;
+import com.galgame.search.service.SearchCache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable in-memory inverted index over one source's catalogue, for offline search.
+ * Names, aliases, tags and introductions are tokenized by {@link Tokens}; every term maps to
+ * a sorted list of document numbers plus a bit mask of the fields it occurs in. A query
+ * intersects the postings of its terms and ranks by the best field of each term, with a
+ * bonus when the name contains the whole query.
+ *
+ * <p>On disk (big-endian, strings as length-prefixed UTF-8, postings as delta varints):
+ * <pre>
+ * header : int magic "GSIX", int version, str source, long builtAtMillis, bool complete
+ * docs   : int count, then per doc: str id, str name, str intro, strs platform, strs aliases, strs tags
+ * terms  : int count, then per term (sorted): str term, varint n, n varint doc deltas, n byte masks
+ * </pre>
+ */
+public final class CatalogIndex {
+
+    /** One page of ranked hits and the total number of matching games. */
+    public record Result(List<Game> games, int total) {}
+
+    private record Document(Game game, List<String> aliases, List<String> tags) {}
+
+    private static final int MAGIC = 0x47534958; // "GSIX"
+    private static final int VERSION = 1;
+
+    private static final byte FIELD_NAME = 1;
+    private static final byte FIELD_ALIAS = 2;
+    private static final byte FIELD_TAG = 4;
+    private static final byte FIELD_INTRO = 8;
+    private static final int NAME_CONTAINS_QUERY_BONUS = 8;
+
+    private final String source;
+    private final long builtAtMillis;
+    private final boolean complete;
+    private final Document[] docs;
+    private final String[] normalizedNames;
+    private final Map<String, Integer> byId;
+    // Sorted, so word prefixes are a contiguous range
+    private final String[] terms;
+    private final int[][] postings;
+    private final byte[][] masks;
+
+    private CatalogIndex(String source, long builtAtMillis, boolean complete, Document[] docs,
+                         String[] terms, int[][] postings, byte[][] masks) {
+        this.source = source;
+        this.builtAtMillis = builtAtMillis;
+        this.complete = complete;
+        this.docs = docs;
+        this.terms = terms;
+        this.postings = postings;
+        this.masks = masks;
+        this.normalizedNames = new String[docs.length];
+        this.byId = new HashMap<>(docs.length * 2);
+        for (int i = 0; i < docs.length; i++) {
+            normalizedNames[i] = SearchCache.normalize(docs[i].game().name());
+            byId.put(docs[i].game().id(), i);
+        }
+    }
+
+    public static Builder builder(String source) {
+        return new Builder(source);
+    }
+
+    /**
+     * A builder holding this index's documents, for adding or replacing entries.
+     */
+    public Builder toBuilder() {
+        Builder b = new Builder(source);
+        for (Document d : docs) b.docs.put(d.game().id(), d);
+        b.complete = complete;
+        return b;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    public long builtAtMillis() {
+        return builtAtMillis;
+    }
+
+    /**
+     * Whether the index holds the whole catalogue, so a miss means the game does not exist.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public int size() {
+        return docs.length;
+    }
+
+    /**
+     * The indexed game with this id, or null.
+     */
+    public Game get(String gameId) {
+        Integer d = byId.get(gameId);
+        return d == null ? null : docs[d].game();
+    }
+
+    /**
+     * Ranked search. Every query term must match (word terms also by prefix).
+     */
+    public Result search(String query, int offset, int limit) {
+        List<Tokens.Token> tokens = Tokens.queryTokens(query);
+        if (tokens.isEmpty() || docs.length == 0) return new Result(List.of(), 0);
+
+        List<Matches> perToken = new ArrayList<>(tokens.size());
+        for (Tokens.Token token : tokens) {
+            Matches m = matches(token);
+            if (m.docs.length == 0) return new Result(List.of(), 0);
+            perToken.add(m);
+        }
+        // Intersect the rarest terms first, so the candidate set shrinks fast
+        perToken.sort((a, b) -> Integer.compare(a.docs.length, b.docs.length));
+        int[] candidates = perToken.get(0).docs.clone();
+        int[] score = perToken.get(0).weights.clone();
+        int count = candidates.length;
+        for (int i = 1; i < perToken.size() && count > 0; i++) {
+            count = intersect(candidates, score, count, perToken.get(i));
+        }
+
+        String normalizedQuery = SearchCache.normalize(query);
+        long[] ranked = new long[count];
+        for (int c = 0; c < count; c++) {
+            int d = candidates[c];
+            int s = score[c];
+            if (normalizedNames[d].contains(normalizedQuery)) s += NAME_CONTAINS_QUERY_BONUS;
+            // Highest score first, then catalogue order
+            ranked[c] = ((long) (Integer.MAX_VALUE - s) << 32) | d;
+        }
+        Arrays.sort(ranked);
+
+        List<Game> page = new ArrayList<>(Math.max(0, Math.min(limit, count - offset)));
+        for (int r = offset; r < count && page.size() < limit; r++) {
+            page.add(docs[(int) ranked[r]].game());
+        }
+        return new Result(page, count);
+    }
+
+    // Sorted documents matching one query token, with the weight each one earns
+    private record Matches(int[] docs, int[] weights) {}
+
+    private Matches matches(Tokens.Token token) {
+        int from = lowerBound(token.text());
+        int to = from;
+        while (to < terms.length && (terms[to].equals(token.text())
+                || (token.prefix() && terms[to].startsWith(token.text())))) {
+            to++;
+        }
+        if (to - from == 1) {
+            int bonus = terms[from].equals(token.text()) ? 2 : 1;
+            int[] weights = new int[postings[from].length];
+            for (int k = 0; k < weights.length; k++) weights[k] = weight(masks[from][k]) * bonus;
+            return new Matches(postings[from], weights);
+        }
+
+        // Several words share the prefix: union them, keeping each document's best weight
+        int total = 0;
+        for (int t = from; t < to; t++) total += postings[t].length;
+        long[] pairs = new long[total];
+        int n = 0;
+        for (int t = from; t < to; t++) {
+            int bonus = terms[t].equals(token.text()) ? 2 : 1;
+            for (int k = 0; k < postings[t].length; k++) {
+                pairs[n++] = ((long) postings[t][k] << 32) | (Integer.MAX_VALUE - weight(masks[t][k]) * bonus);
+            }
+        }
+        Arrays.sort(pairs);
+        int[] unionDocs = new int[total];
+        int[] unionWeights = new int[total];
+        int size = 0;
+        for (long pair : pairs) {
+            int d = (int) (pair >>> 32);
+            if (size > 0 && unionDocs[size - 1] == d) continue; // The best weight came first
+            unionDocs[size] = d;
+            unionWeights[size] = Integer.MAX_VALUE - (int) pair;
+            size++;
+        }
+        return new Matches(Arrays.copyOf(unionDocs, size), Arrays.copyOf(unionWeights, size));
+    }
+
+    // Keeps the candidates that are also in m, adding m's weights; returns the new count
+    private static int intersect(int[] candidates, int[] score, int count, Matches m) {
+        int[] other = m.docs;
+        int kept = 0;
+        if (other.length > count * 8) {
+            // Few candidates against a long list: binary search is cheaper than a merge
+            for (int c = 0; c < count; c++) {
+                int k = Arrays.binarySearch(other, candidates[c]);
+                if (k >= 0) {
+                    candidates[kept] = candidates[c];
+                    score[kept++] = score[c] + m.weights[k];
+                }
+            }
+            return kept;
+        }
+        int k = 0;
+        for (int c = 0; c < count && k < other.length; c++) {
+            while (k < other.length && other[k] < candidates[c]) k++;
+            if (k < other.length && other[k] == candidates[c]) {
+                candidates[kept] = candidates[c];
+                score[kept++] = score[c] + m.weights[k];
+            }
+        }
+        return kept;
+    }
+
+    private int lowerBound(String key) {
+        int lo = 0;
+        int hi = terms.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (terms[mid].compareTo(key) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static int weight(byte mask) {
+        if ((mask & FIELD_NAME) != 0) return 4;
+        if ((mask & FIELD_ALIAS) != 0) return 3;
+        if ((mask & FIELD_TAG) != 0) return 2;
+        return 1;
+    }
+
+    // --- Building ---
+
+    public static final class Builder {
+        private final String source;
+        // Keyed by game id; replacing a game keeps its position
+        private final LinkedHashMap<String, Document> docs = new LinkedHashMap<>();
+        private boolean complete = false;
+
+        private Builder(String source) {
+            this.source = source;
+        }
+
+        public Builder add(Game game) {
+            return add(game, List.of(), List.of());
+        }
+
+        public Builder add(Game game, Collection<String> aliases, Collection<String> tags) {
+            docs.put(game.id(), new Document(game, List.copyOf(aliases), List.copyOf(tags)));
+            return this;
+        }
+
+        public Builder remove(String gameId) {
+            docs.remove(gameId);
+            return this;
+        }
+
+        public Builder complete(boolean complete) {
+            this.complete = complete;
+            return this;
+        }
+
+        public int size() {
+            return docs.size();
+        }
+
+        public CatalogIndex build() {
+            Document[] all = docs.values().toArray(new Document[0]);
+            Map<String, PostingList> index = new HashMap<>();
+            for (int d = 0; d < all.length; d++) {
+                Document doc = all[d];
+                addField(index, d, FIELD_NAME, doc.game().name());
+                for (String alias : doc.aliases()) addField(index, d, FIELD_ALIAS, alias);
+                for (String tag : doc.tags()) addField(index, d, FIELD_TAG, tag);
+                addField(index, d, FIELD_INTRO, doc.game().introduction());
+            }
+            String[] terms = index.keySet().toArray(new String[0]);
+            Arrays.sort(terms);
+            int[][] postings = new int[terms.length][];
+            byte[][] masks = new byte[terms.length][];
+            for (int t = 0; t < terms.length; t++) {
+                PostingList list = index.get(terms[t]);
+                postings[t] = Arrays.copyOf(list.docs, list.size);
+                masks[t] = Arrays.copyOf(list.masks, list.size);
+            }
+            return new CatalogIndex(source, System.currentTimeMillis(), complete, all, terms, postings, masks);
+        }
+
+        private static void addField(Map<String, PostingList> index, int doc, byte field, String text) {
+            if (text == null || text.isEmpty()) return;
+            for (String term : Tokens.indexTerms(text)) {
+                index.computeIfAbsent(term, k -> new PostingList()).add(doc, field);
+            }
+        }
+    }
+
+    // Documents are added in increasing order, so a repeat can only be the last one
+    private static final class PostingList {
+        int[] docs = new int[4];
+        byte[] masks = new byte[4];
+        int size;
+
+        void add(int doc, byte field) {
+            if (size > 0 && docs[size - 1] == doc) {
+                masks[size - 1] |= field;
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                masks = Arrays.copyOf(masks, size * 2);
+            }
+            docs[size] = doc;
+            masks[size] = field;
+            size++;
+        }
+    }
+
+    // --- Persistence ---
+
+    public void save(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, source);
+            out.writeLong(builtAtMillis);
+            out.writeBoolean(complete);
+
+            out.writeInt(docs.length);
+            for (Document d : docs) {
+                Game g = d.game();
+                writeString(out, g.id());
+                writeString(out, g.name());
+                writeString(out, g.introduction());
+                writeStrings(out, g.platform());
+                writeStrings(out, d.aliases());
+                writeStrings(out, d.tags());
+            }
+
+            out.writeInt(terms.length);
+            for (int t = 0; t < terms.length; t++) {
+                writeString(out, terms[t]);
+                int[] list = postings[t];
+                writeVarInt(out, list.length);
+                int previous = 0;
+                for (int doc : list) {
+                    writeVarInt(out, doc - previous);
+                    previous = doc;
+                }
+                out.write(masks[t]);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads an index written by {@link #save}, or returns null if the file does not exist.
+     */
+    public static CatalogIndex load(Path file) throws IOException {
+        if (!Files.exists(file)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unknown catalogue index format: " + file);
+            }
+            String source = readString(in);
+            long builtAt = in.readLong();
+            boolean complete = in.readBoolean();
+
+            Document[] docs = new Document[in.readInt()];
+            for (int d = 0; d < docs.length; d++) {
+                String id = readString(in);
+                String name = readString(in);
+                String intro = readString(in);
+                List<String> platform = readStrings(in);
+                Game game = new Game(id, name, intro, platform, source);
+                docs[d] = new Document(game, readStrings(in), readStrings(in));
+            }
+
+            int termCount = in.readInt();
+            String[] terms = new String[termCount];
+            int[][] postings = new int[termCount][];
+            byte[][] masks = new byte[termCount][];
+            for (int t = 0; t < termCount; t++) {
+                terms[t] = readString(in);
+                int[] list = new int[readVarInt(in)];
+                int doc = 0;
+                for (int k = 0; k < list.length; k++) {
+                    doc += readVarInt(in);
+                    if (doc >= docs.length) throw new IOException("Corrupt catalogue index: " + file);
+                    list[k] = doc;
+                }
+                postings[t] = list;
+                masks[t] = in.readNBytes(list.length);
+            }
+            return new CatalogIndex(source, builtAt, complete, docs, terms, postings, masks);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> list) throws IOException {
+        if (list == null) list = List.of();
+        writeVarInt(out, list.size());
+        for (String s : list) writeString(out, s);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = readVarInt(in);
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = readVarInt(in);
+        List<String> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) list.add(readString(in));
+        return List.copyOf(list);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint in catalogue index");
+    }
+}
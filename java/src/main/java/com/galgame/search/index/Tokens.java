@@ -0,0 +1,92 @@
+package com.galgame.search.index;
+
+import com.galgame.search.service.SearchCache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tokenization shared by indexing and querying. Text is normalized like cache keys
+ * (NFKC, lower case), then split into runs of letters/digits and runs of CJK characters.
+ * Letter runs become words. CJK text has no spaces, so its runs are indexed as single
+ * characters plus overlapping character pairs (bigrams); a query of two or more CJK
+ * characters then matches any title containing all of its bigrams.
+ */
+final class Tokens {
+
+    /** A query term; {@code prefix} terms also match longer indexed words. */
+    record Token(String text, boolean prefix) {}
+
+    private Tokens() {
+    }
+
+    static Set<String> indexTerms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (Run run : runs(SearchCache.normalize(text))) {
+            if (!run.cjk()) {
+                terms.add(run.text());
+                continue;
+            }
+            int[] cps = run.text().codePoints().toArray();
+            for (int i = 0; i < cps.length; i++) {
+                terms.add(new String(cps, i, 1));
+                if (i + 1 < cps.length) terms.add(new String(cps, i, 2));
+            }
+        }
+        return terms;
+    }
+
+    static List<Token> queryTokens(String query) {
+        List<Token> tokens = new ArrayList<>();
+        for (Run run : runs(SearchCache.normalize(query))) {
+            if (!run.cjk()) {
+                // Search-as-you-type: the word may still be incomplete
+                tokens.add(new Token(run.text(), true));
+                continue;
+            }
+            int[] cps = run.text().codePoints().toArray();
+            if (cps.length == 1) {
+                tokens.add(new Token(run.text(), false));
+            }
+            for (int i = 0; i + 1 < cps.length; i++) {
+                tokens.add(new Token(new String(cps, i, 2), false));
+            }
+        }
+        return tokens;
+    }
+
+    private record Run(String text, boolean cjk) {}
+
+    private static List<Run> runs(String text) {
+        List<Run> runs = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean currentCjk = false;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            boolean cjk = isCjk(cp);
+            boolean word = !cjk && Character.isLetterOrDigit(cp);
+            if ((!cjk && !word) || (current.length() > 0 && cjk != currentCjk)) {
+                if (current.length() > 0) runs.add(new Run(current.toString(), currentCjk));
+                current.setLength(0);
+            }
+            if (cjk || word) {
+                current.appendCodePoint(cp);
+                currentCjk = cjk;
+            }
+        }
+        if (current.length() > 0) runs.add(new Run(current.toString(), currentCjk));
+        return runs;
+    }
+
+    private static boolean isCjk(int cp) {
+        if (cp == 0x30FC) return true; // Katakana prolonged sound mark is script COMMON
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+            || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA
+            || script == Character.UnicodeScript.HANGUL;
+    }
+}
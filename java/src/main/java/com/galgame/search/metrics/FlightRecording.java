@@ -0,0 +1,71 @@
+package com.galgame.search.metrics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-process flight recording with the JDK's default settings plus the bundled
+ * {@code galgame.jfc}, so slow interactions can be captured without a profiler or jcmd.
+ * The application's events cost next to nothing while no recording enables them.
+ */
+public final class FlightRecording {
+
+    private static final String BUNDLED = "/galgame.jfc";
+
+    private Recording recording;
+
+    public synchronized boolean isRunning() {
+        return recording != null;
+    }
+
+    public synchronized void start() throws IOException {
+        if (recording != null) return;
+        Map<String, String> settings = new HashMap<>();
+        try {
+            settings.putAll(Configuration.getConfiguration("default").getSettings());
+        } catch (ParseException e) {
+            throw new IOException("Invalid JDK recording settings", e);
+        }
+        settings.putAll(bundledSettings());
+        Recording r = new Recording(settings);
+        r.setName("galgame");
+        r.setToDisk(true);
+        r.start();
+        recording = r;
+    }
+
+    /**
+     * Stops the recording and writes it to {@code file}.
+     */
+    public synchronized void stop(Path file) throws IOException {
+        Recording r = recording;
+        if (r == null) return;
+        recording = null;
+        try {
+            r.stop();
+            r.dump(file);
+        } finally {
+            r.close();
+        }
+    }
+
+    public static Map<String, String> bundledSettings() throws IOException {
+        try (InputStream in = FlightRecording.class.getResourceAsStream(BUNDLED)) {
+            if (in == null) throw new IOException("Missing " + BUNDLED);
+            Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+            return Configuration.create(reader).getSettings();
+        } catch (ParseException e) {
+            throw new IOException("Invalid " + BUNDLED, e);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.galgame.search.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Named counters, histograms and gauges, cheap enough to update on every request.
+ * Names carry their tags in braces, e.g. {@code source.calls{source=Nyaa,outcome=timeout}};
+ * see {@link #name}. Metrics are created on first use and live as long as the registry.
+ */
+public final class MetricsRegistry {
+
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+    private final Map<String, DoubleSupplier> gauges = new ConcurrentSkipListMap<>();
+    private final long startedAtMillis = System.currentTimeMillis();
+
+    /**
+     * {@code name("source.calls", "source", "Nyaa", "outcome", "ok")} gives
+     * {@code source.calls{source=Nyaa,outcome=ok}}.
+     */
+    public static String name(String base, String... tags) {
+        if (tags.length == 0) return base;
+        StringBuilder sb = new StringBuilder(base).append('{');
+        for (int i = 0; i + 1 < tags.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(tags[i]).append('=').append(tags[i + 1]);
+        }
+        return sb.append('}').toString();
+    }
+
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    public Histogram histogram(String name, Histogram.Unit unit) {
+        return histograms.computeIfAbsent(name, k -> new Histogram(unit));
+    }
+
+    /**
+     * Registers a value that is read when the metrics are shown or exported.
+     */
+    public void gauge(String name, DoubleSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Plain-text report: counters, gauges, then histograms with count, mean and quantiles
+     * (times in milliseconds).
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Counters\n");
+        counters.forEach((k, v) -> sb.append(String.format(Locale.ROOT, "  %-58s %12d%n", k, v.sum())));
+        sb.append("\nGauges\n");
+        gauges.forEach((k, v) -> sb.append(String.format(Locale.ROOT, "  %-58s %12.3f%n", k, read(v))));
+        sb.append(String.format(Locale.ROOT, "%nHistograms%n  %-58s %7s %9s %9s %9s %9s %9s%n",
+            "", "count", "mean", "p50", "p90", "p99", "max"));
+        histograms.forEach((k, h) -> {
+            Histogram.Snapshot s = h.snapshot();
+            double scale = h.unit() == Histogram.Unit.NANOSECONDS ? 1e6 : 1;
+            String unit = h.unit() == Histogram.Unit.NANOSECONDS ? " ms" : " B";
+            sb.append(String.format(Locale.ROOT, "  %-58s %7d %9.1f %9.1f %9.1f %9.1f %9.1f%s%n", k, s.count(),
+                s.mean() / scale, s.p50() / scale, s.p90() / scale, s.p99() / scale, s.max() / scale, unit));
+        });
+        return sb.toString();
+    }
+
+    /**
+     * Writes all metrics as one JSON document.
+     */
+    public void export(Path file) throws IOException {
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        ObjectNode root = mapper.createObjectNode();
+        root.put("exportedAt", Instant.now().toString());
+        root.put("startedAt", Instant.ofEpochMilli(startedAtMillis).toString());
+        ObjectNode c = root.putObject("counters");
+        counters.forEach((k, v) -> c.put(k, v.sum()));
+        ObjectNode g = root.putObject("gauges");
+        gauges.forEach((k, v) -> g.put(k, read(v)));
+        ObjectNode h = root.putObject("histograms");
+        histograms.forEach((k, hist) -> {
+            Histogram.Snapshot s = hist.snapshot();
+            ObjectNode n = h.putObject(k);
+            n.put("unit", hist.unit().name().toLowerCase(Locale.ROOT));
+            n.put("count", s.count());
+            n.put("mean", s.mean());
+            n.put("p50", s.p50());
+            n.put("p90", s.p90());
+            n.put("p99", s.p99());
+            n.put("max", s.max());
+        });
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        mapper.writeValue(file.toFile(), root);
+    }
+
+    private static double read(DoubleSupplier gauge) {
+        try {
+            return gauge.getAsDouble();
+        } catch (RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+}
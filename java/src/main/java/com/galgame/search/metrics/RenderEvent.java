@@ -0,0 +1,26 @@
+package com.galgame.search.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A UI update on the FX thread, such as rebuilding the resource list of the detail pane.
+ */
+@Name("galgame.Render")
+@Label("Render")
+@Category({"Galgame Search", "UI"})
+@Description("A view update on the JavaFX application thread")
+public class RenderEvent extends jdk.jfr.Event {
+
+    @Label("View")
+    public String view;
+
+    @Label("Detail")
+    @Description("What was shown, e.g. the resource category")
+    public String detail;
+
+    @Label("Items")
+    public int items;
+}
@@ -0,0 +1,25 @@
+package com.galgame.search.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Filling one resource card (new or recycled) with a resource. Recorded below a threshold
+ * only when asked for, since scrolling a long list refills cards continuously.
+ */
+@Name("galgame.ResourceCard")
+@Label("Resource Card")
+@Category({"Galgame Search", "UI"})
+@Description("Filling one resource card of the detail pane, including link parsing")
+@StackTrace(false)
+public class ResourceCardEvent extends jdk.jfr.Event {
+
+    @Label("Resource")
+    public String resource;
+
+    @Label("Links")
+    public int links;
+}
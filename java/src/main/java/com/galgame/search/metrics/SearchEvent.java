@@ -0,0 +1,41 @@
+package com.galgame.search.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One search across all sources, from the call until the last source has reported.
+ * Begun on the caller's thread and committed on whichever thread finishes the search.
+ */
+@Name("galgame.Search")
+@Label("Search")
+@Category({"Galgame Search", "Search"})
+@Description("A search across all sources, until the last source has reported")
+@StackTrace(false)
+public class SearchEvent extends jdk.jfr.Event {
+
+    @Label("Keyword")
+    public String keyword;
+
+    @Label("Mode")
+    @Description("streaming, blocking or revalidate")
+    public String mode;
+
+    @Label("Sources")
+    public int sources;
+
+    @Label("Games")
+    public int games;
+
+    @Label("Failed Sources")
+    public int failed;
+
+    @Label("Timed Out Sources")
+    public int timedOut;
+
+    @Label("Cancelled")
+    public boolean cancelled;
+}
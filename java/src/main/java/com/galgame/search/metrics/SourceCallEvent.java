@@ -0,0 +1,59 @@
+package com.galgame.search.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One call into a source ({@code searchPage} or {@code getDownloads}), with the stage
+ * breakdown from {@link StageTimer}.
+ */
+@Name("galgame.SourceCall")
+@Label("Source Call")
+@Category({"Galgame Search", "Network"})
+@Description("A search or resource call into one source, split into network stages and parsing")
+@StackTrace(false)
+public class SourceCallEvent extends jdk.jfr.Event {
+
+    @Label("Source")
+    public String source;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Outcome")
+    @Description("ok, or the failure cause: timeout, http_5xx, dns, connect, io, parse, rejected, cancelled, other")
+    public String outcome;
+
+    @Label("Wire Bytes")
+    @DataAmount
+    public long wireBytes;
+
+    @Label("Queue")
+    @Description("Waiting for the source's rate limiter")
+    @Timespan
+    public long queue;
+
+    @Label("Connect To First Byte")
+    @Description("Request sent until response headers on a new connection, including name resolution")
+    @Timespan
+    public long connectTtfb;
+
+    @Label("Time To First Byte")
+    @Description("Request sent until response headers on a reused connection")
+    @Timespan
+    public long ttfb;
+
+    @Label("Body Read")
+    @Timespan
+    public long body;
+
+    @Label("Parse")
+    @Description("Time not spent waiting on the network: request building, decoding and parsing")
+    @Timespan
+    public long parse;
+}
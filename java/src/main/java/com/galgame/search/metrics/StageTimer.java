@@ -0,0 +1,78 @@
+package com.galgame.search.metrics;
+
+/**
+ * Time spent in each network stage of one source call, collected on the calling thread.
+ * The caller brackets the call with {@link #begin()} / {@link #end()}; code further down
+ * (the HTTP transport) adds to {@link #current()}, which is null outside a bracketed call.
+ * A source call runs on one (virtual) thread, including its streaming parse, so a
+ * thread-local is enough to connect the two.
+ */
+public final class StageTimer {
+
+    public enum Stage {
+        /** Waiting for the source's rate limiter before the request could be sent. */
+        QUEUE,
+        /** Request sent until response headers, on a new connection (so name resolution, TCP and TLS setup are included). */
+        CONNECT_TTFB,
+        /** Request sent until response headers, on a reused connection. */
+        TTFB,
+        /** Time blocked reading the response body off the wire. */
+        BODY
+    }
+
+    private static final ThreadLocal<StageTimer> CURRENT = new ThreadLocal<>();
+
+    private final long[] nanos = new long[Stage.values().length];
+    private long wireBytes;
+    private StageTimer outer;
+
+    private StageTimer() {
+    }
+
+    public static StageTimer begin() {
+        StageTimer timer = new StageTimer();
+        timer.outer = CURRENT.get();
+        CURRENT.set(timer);
+        return timer;
+    }
+
+    public static StageTimer current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Time the current call has spent in {@link Stage#QUEUE} so far, zero outside a bracketed call.
+     * Lets code that times part of a call leave out the waiting done inside it.
+     */
+    public static long queuedNanos() {
+        StageTimer timer = CURRENT.get();
+        return timer == null ? 0 : timer.nanos(Stage.QUEUE);
+    }
+
+    public void end() {
+        if (outer != null) CURRENT.set(outer);
+        else CURRENT.remove();
+    }
+
+    public void add(Stage stage, long elapsedNanos) {
+        nanos[stage.ordinal()] += elapsedNanos;
+    }
+
+    public void addWireBytes(long bytes) {
+        wireBytes += bytes;
+    }
+
+    public long nanos(Stage stage) {
+        return nanos[stage.ordinal()];
+    }
+
+    public long totalNanos() {
+        long total = 0;
+        for (long n : nanos) total += n;
+        return total;
+    }
+
+    public long wireBytes() {
+        return wireBytes;
+    }
+}
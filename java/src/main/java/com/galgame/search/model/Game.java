@@ -7,5 +7,10 @@ public record Game(
     String name,
     String introduction,
     List<String> platform,
-    String source // New field to identify origin (e.g. "TouchGal")
-) {}
+    String source, // New field to identify origin (e.g. "TouchGal")
+    TorrentInfo torrent // Only set for torrent sources such as Nyaa
+) {
+    public Game(String id, String name, String introduction, List<String> platform, String source) {
+        this(id, name, introduction, platform, source, null);
+    }
+}
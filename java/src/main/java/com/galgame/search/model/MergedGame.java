@@ -0,0 +1,73 @@
+package com.galgame.search.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One row of the merged result list: the same title as found in one or more sources
+ * (e.g. a TouchGal entry and every Nyaa release of it). Members are kept in arrival order.
+ */
+public final class MergedGame {
+
+    private final List<Game> games = new ArrayList<>(1);
+
+    public MergedGame(Game first) {
+        games.add(first);
+    }
+
+    /**
+     * Adds another source entry of the same title. Callers on the UI side must refresh
+     * the row afterwards.
+     */
+    public void add(Game game) {
+        games.add(game);
+    }
+
+    public List<Game> games() {
+        return Collections.unmodifiableList(games);
+    }
+
+    /**
+     * The entry shown for the row: the first one carrying a description (a catalogue entry
+     * rather than a torrent), or else the first one found.
+     */
+    public Game primary() {
+        for (Game g : games) {
+            if (g.torrent() == null) return g;
+        }
+        return games.get(0);
+    }
+
+    public String name() {
+        return primary().name();
+    }
+
+    public boolean contains(Game game) {
+        return games.contains(game);
+    }
+
+    /**
+     * e.g. "TouchGal · Nyaa ×3".
+     */
+    public String sourceSummary() {
+        List<String> sources = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        for (Game g : games) {
+            int i = sources.indexOf(g.source());
+            if (i < 0) {
+                sources.add(g.source());
+                counts.add(1);
+            } else {
+                counts.set(i, counts.get(i) + 1);
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < sources.size(); i++) {
+            if (i > 0) sb.append(" · ");
+            sb.append(sources.get(i));
+            if (counts.get(i) > 1) sb.append(" ×").append(counts.get(i));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,9 @@
+package com.galgame.search.model;
+
+public record TorrentInfo(
+    String size, // As published by the tracker, e.g. "1.2 GiB"
+    String infoHash,
+    int seeders,
+    int leechers,
+    int downloads
+) {}
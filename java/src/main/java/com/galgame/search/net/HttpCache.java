@@ -0,0 +1,322 @@
+package com.galgame.search.net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-disk cache of GET response bodies that came with a validator ({@code ETag} or
+ * {@code Last-Modified}), used by {@link HttpTransport} to revalidate instead of downloading
+ * again. One file per URL, holding the validators and the decoded body. The total size is
+ * capped; the least recently used files are deleted first.
+ *
+ * <p>The parsed form of the most recently used bodies is also kept in memory, so a
+ * {@code 304 Not Modified} usually costs neither a disk read nor a parse.
+ */
+public class HttpCache {
+
+    /** A cached response. {@code etag} and {@code lastModified} may each be null, not both. */
+    public static final class Entry {
+        final URI uri;
+        final String etag;
+        final String lastModified;
+        final Path file;
+        final long bytes;
+
+        Entry(URI uri, String etag, String lastModified, Path file, long bytes) {
+            this.uri = uri;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.file = file;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final int MAGIC = 0x47534843; // "GSHC"
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".http";
+    // Bodies above this are not worth a cache slot
+    private static final long MAX_ENTRY_BYTES = 2L * 1024 * 1024;
+    private static final int MAX_PARSED = 32;
+
+    private final Path dir;
+    private final long maxBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final LinkedHashMap<Entry, Object> parsed = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Entry, Object> eldest) {
+            return size() > MAX_PARSED;
+        }
+    };
+    private long totalBytes = 0;
+    private boolean loaded = false;
+
+    public HttpCache(Path dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The entry for {@code uri}, or null. Bodies are only read when actually needed.
+     */
+    public Entry get(URI uri) {
+        synchronized (this) {
+            loadIndex();
+            return entries.get(uri.toString());
+        }
+    }
+
+    /**
+     * The parsed body remembered for {@code entry}, or null if it has to be parsed again.
+     */
+    public synchronized Object parsed(Entry entry) {
+        return parsed.get(entry);
+    }
+
+    /**
+     * Opens the cached body of {@code entry}, or returns null if its file is gone
+     * (in which case the entry is dropped as well).
+     */
+    public InputStream openBody(Entry entry) {
+        try {
+            DataInputStream in = new DataInputStream(Files.newInputStream(entry.file));
+            readHeader(in);
+            in.readInt(); // Body length
+            return in;
+        } catch (IOException e) {
+            remove(entry);
+            return null;
+        }
+    }
+
+    /**
+     * Marks {@code entry} as just used, so it is evicted last (also after a restart).
+     */
+    public void touch(Entry entry) {
+        try {
+            Files.setLastModifiedTime(entry.file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignored) {
+            // Only affects eviction order
+        }
+    }
+
+    /**
+     * Remembers the parsed form of a body that was read back from disk.
+     */
+    public synchronized void rememberParsed(Entry entry, Object value) {
+        if (entries.get(entry.uri.toString()) == entry) parsed.put(entry, value);
+    }
+
+    /**
+     * Stores a fresh response, replacing any earlier one for the same URL.
+     */
+    public void put(URI uri, String etag, String lastModified, byte[] body, Object value) {
+        if (etag == null && lastModified == null) return;
+        if (body.length > MAX_ENTRY_BYTES) return;
+        Path file = dir.resolve(fileName(uri));
+        Path tmp = null;
+        try {
+            Files.createDirectories(dir);
+            // A file of its own per writer: two revalidations of the same URL may store at once
+            tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tmp))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(uri.toString());
+                out.writeUTF(etag == null ? "" : etag);
+                out.writeUTF(lastModified == null ? "" : lastModified);
+                out.writeInt(body.length);
+                out.write(body);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to write HTTP cache entry: " + e.getMessage());
+            try {
+                if (tmp != null) Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
+            return;
+        }
+
+        Entry entry = new Entry(uri, etag, lastModified, file, body.length);
+        synchronized (this) {
+            loadIndex();
+            Entry old = entries.put(uri.toString(), entry);
+            if (old != null) {
+                totalBytes -= old.bytes;
+                parsed.remove(old);
+            }
+            totalBytes += entry.bytes;
+            if (value != null) parsed.put(entry, value);
+            evictIfNeeded();
+        }
+    }
+
+    public synchronized int size() {
+        loadIndex();
+        return entries.size();
+    }
+
+    public synchronized long byteSize() {
+        loadIndex();
+        return totalBytes;
+    }
+
+    private synchronized void remove(Entry entry) {
+        if (entries.remove(entry.uri.toString(), entry)) {
+            totalBytes -= entry.bytes;
+            parsed.remove(entry);
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (totalBytes > maxBytes && entries.size() > 1 && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.bytes;
+            parsed.remove(eldest);
+            try {
+                Files.deleteIfExists(eldest.file);
+            } catch (IOException e) {
+                System.err.println("Failed to delete HTTP cache entry: " + e.getMessage());
+            }
+        }
+    }
+
+    // Reads only the headers of the files on disk, oldest first so recency roughly survives restarts
+    private void loadIndex() {
+        if (loaded) return;
+        loaded = true;
+        if (!Files.isDirectory(dir)) return;
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            System.err.println("Failed to read HTTP cache: " + e.getMessage());
+            return;
+        }
+        files.sort(Comparator.comparingLong(HttpCache::lastModifiedTime));
+        for (Path file : files) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+                String[] header = readHeader(in);
+                Entry entry = new Entry(URI.create(header[0]), emptyToNull(header[1]), emptyToNull(header[2]),
+                    file, in.readInt());
+                entries.put(header[0], entry);
+                totalBytes += entry.bytes;
+            } catch (IOException | IllegalArgumentException e) {
+                // Unreadable or from another version: not worth keeping
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        evictIfNeeded();
+    }
+
+    // Returns url, etag, lastModified and leaves the stream at the start of the body
+    private static String[] readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not an HTTP cache entry");
+        }
+        return new String[] { in.readUTF(), in.readUTF(), in.readUTF() };
+    }
+
+    private static String fileName(URI uri) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(uri.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16) + SUFFIX;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long lastModifiedTime(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static String emptyToNull(String s) {
+        return s.isEmpty() ? null : s;
+    }
+
+    /**
+     * Passes a response body through to a parser while keeping a copy of everything read,
+     * up to the largest body the cache will store.
+     */
+    static final class Recorder extends InputStream {
+        private final InputStream in;
+        private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        private boolean overflow = false;
+
+        Recorder(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n = in.read(buf, off, len);
+            if (n > 0) record(buf, off, n);
+            return n;
+        }
+
+        /**
+         * Reads what the parser left unread and returns the whole body, or null if it was too big.
+         */
+        byte[] finish() throws IOException {
+            byte[] buf = new byte[8192];
+            while (!overflow) {
+                if (read(buf, 0, buf.length) < 0) break;
+            }
+            return overflow ? null : copy.toByteArray();
+        }
+
+        private void record(byte[] buf, int off, int len) {
+            if (overflow) return;
+            if (copy.size() + len > MAX_ENTRY_BYTES) {
+                overflow = true;
+                copy.reset();
+            } else {
+                copy.write(buf, off, len);
+            }
+        }
+
+        // Parsers may close their input when done (StAX does), but finish() still has to read the
+        // rest; the body is closed by whoever opened it
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.galgame.search.net;
+
+import java.io.IOException;
+
+/**
+ * A response with a status the caller cannot use, kept apart from transport failures so
+ * errors can be told apart by cause.
+ */
+public class HttpStatusException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    public HttpStatusException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int statusCode() {
+        return statusCode;
+    }
+}
@@ -0,0 +1,557 @@
+package com.galgame.search.net;
+
+import com.galgame.search.metrics.Histogram;
+import com.galgame.search.metrics.MetricsRegistry;
+import com.galgame.search.metrics.StageTimer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The one HTTP client every source talks through. It keeps a single connection pool,
+ * prefers HTTP/2 (falling back to HTTP/1.1 where the server does not offer it), asks for
+ * compressed bodies and decodes them transparently, and applies a per-source timeout, over the
+ * whole exchange including the body, and rate limit. Transfer statistics show what compression and connection reuse save.
+ */
+public class HttpTransport {
+
+    /** Turns a response body into a value; must not keep a reference to the stream. */
+    @FunctionalInterface
+    public interface BodyParser<T> {
+        T parse(InputStream body) throws Exception;
+    }
+
+    /**
+     * Transfer counters since startup. {@code wireBytes} is what came over the network
+     * (still compressed), {@code decodedBytes} what the parsers actually read.
+     */
+    public record Stats(long requests, long compressedResponses, long wireBytes, long decodedBytes,
+                        long reusedConnections, long notModified) {
+
+        /** Decoded bytes per byte on the wire; 1.0 means nothing was saved. */
+        public double compressionRatio() {
+            return wireBytes == 0 ? 1.0 : (double) decodedBytes / wireBytes;
+        }
+
+        /** Share of requests that went over an already open connection (estimated). */
+        public double connectionReuseRate() {
+            return requests == 0 ? 0.0 : (double) reusedConnections / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                "%d requests, %d compressed, %d not modified, %d KB on the wire / %d KB decoded (x%.1f), %.0f%% connection reuse",
+                requests, compressedResponses, notModified, wireBytes / 1024, decodedBytes / 1024,
+                compressionRatio(), connectionReuseRate() * 100);
+        }
+    }
+
+    // The JDK client has no Brotli decoder, so only ask for what it can undo
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    // Idle connections are kept this long by the JDK client (jdk.httpclient.keepalive.timeout)
+    private static final long KEEP_ALIVE_NANOS = Duration.ofSeconds(30).toNanos();
+    // Closes bodies whose exchange ran past its timeout; the client's own timeout stops at the headers
+    private static final ScheduledThreadPoolExecutor DEADLINES = deadlineScheduler();
+
+    private final HttpClient client;
+    private volatile Duration defaultTimeout = Duration.ofSeconds(10);
+    private final Map<String, Duration> timeouts = new ConcurrentHashMap<>();
+    private final Map<String, RateLimiter> limiters = new ConcurrentHashMap<>();
+    // Source whose next request on this thread was already let through by withPermit
+    private static final ThreadLocal<String> PREPAID = new ThreadLocal<>();
+    // Wait without a Retry-After header after a 429
+    private static final Duration DEFAULT_BACKOFF = Duration.ofSeconds(2);
+    private volatile MetricsRegistry metrics;
+
+    // Last time a response arrived per host. The JDK client does not expose its pool, so a
+    // request sent within the keep-alive window of the previous one is counted as reused
+    private final Map<String, Long> lastActivity = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong compressed = new AtomicLong();
+    private final AtomicLong wireBytes = new AtomicLong();
+    private final AtomicLong decodedBytes = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+
+    private volatile HttpCache cache;
+
+    public HttpTransport() {
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    }
+
+    /**
+     * Enables conditional revalidation of GET requests made through {@link #fetch}.
+     */
+    public void setCache(HttpCache cache) {
+        this.cache = cache;
+    }
+
+    public HttpCache getCache() {
+        return cache;
+    }
+
+    public void setDefaultTimeout(Duration timeout) {
+        this.defaultTimeout = timeout;
+    }
+
+    /**
+     * Timeout for a whole request of {@code source}, from sending until the last byte of the
+     * body. A body still being read at that point is closed and its read fails with an
+     * {@link HttpTimeoutException}.
+     */
+    public void setTimeout(String source, Duration timeout) {
+        timeouts.put(source, timeout);
+    }
+
+    /**
+     * Limits {@code source} to {@code permitsPerSecond} requests on average, in bursts of up
+     * to {@code burst}; requests beyond that wait in line by {@link RateLimiter#current()}
+     * priority. A rate of zero or less removes the limit.
+     */
+    public void setRateLimit(String source, double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            limiters.remove(source);
+            return;
+        }
+        RateLimiter limiter = new RateLimiter(permitsPerSecond, burst);
+        limiters.put(source, limiter);
+        MetricsRegistry registry = metrics;
+        if (registry != null) {
+            registry.gauge(MetricsRegistry.name("ratelimit.queued", "source", source), limiter::getQueuedCount);
+        }
+    }
+
+    /**
+     * Records rate limiter wait times ({@code ratelimit.wait}) into {@code registry}.
+     */
+    public void setMetrics(MetricsRegistry registry) {
+        this.metrics = registry;
+        limiters.forEach((source, limiter) ->
+            registry.gauge(MetricsRegistry.name("ratelimit.queued", "source", source), limiter::getQueuedCount));
+    }
+
+    /**
+     * Waits for a rate limiter permit of {@code source}, then runs {@code call} with the next
+     * request of {@code source} on this thread already let through. This way a caller can
+     * wait its turn before taking anything scarce, such as a bulkhead slot. Further requests
+     * made by {@code call} wait as usual.
+     */
+    public <T> T withPermit(String source, Callable<T> call) throws Exception {
+        RateLimiter limiter = limiters.get(source);
+        if (limiter == null) return call.call();
+        waitForPermit(source, limiter);
+        String outer = PREPAID.get();
+        PREPAID.set(source);
+        try {
+            return call.call();
+        } finally {
+            if (outer != null) PREPAID.set(outer);
+            else PREPAID.remove();
+        }
+    }
+
+    /**
+     * Sends a request on behalf of {@code source}. The returned body is already decompressed
+     * and must be closed by the caller, and reading it fails once the source's timeout has
+     * passed since sending.
+     */
+    public HttpResponse<InputStream> send(String source, HttpRequest.Builder request)
+            throws IOException, InterruptedException {
+        RateLimiter limiter = limiters.get(source);
+        if (source.equals(PREPAID.get())) {
+            PREPAID.remove();
+        } else if (limiter != null) {
+            waitForPermit(source, limiter);
+        }
+        Duration timeout = timeouts.getOrDefault(source, defaultTimeout);
+        HttpRequest built = request
+            .timeout(timeout)
+            .header("Accept-Encoding", ACCEPT_ENCODING)
+            .build();
+        requests.incrementAndGet();
+        String host = hostOf(built.uri());
+        Long previous = lastActivity.get(host);
+        boolean reuse = previous != null && System.nanoTime() - previous < KEEP_ALIVE_NANOS;
+        if (reuse) reused.incrementAndGet();
+
+        StageTimer timer = StageTimer.current();
+        long sent = System.nanoTime();
+        long deadline = sent + timeout.toNanos();
+        try {
+            HttpResponse<InputStream> response = client.send(built, info -> decodingHandler(info, deadline));
+            lastActivity.put(host, System.nanoTime());
+            if (response.statusCode() == 429 && limiter != null) limiter.pause(retryAfter(response));
+            return response;
+        } finally {
+            if (timer != null) {
+                timer.add(reuse ? StageTimer.Stage.TTFB : StageTimer.Stage.CONNECT_TTFB, System.nanoTime() - sent);
+            }
+        }
+    }
+
+    private void waitForPermit(String source, RateLimiter limiter) throws InterruptedException {
+        RateLimiter.Urgency urgency = RateLimiter.current();
+        long waited = limiter.acquire(urgency);
+        StageTimer timer = StageTimer.current();
+        if (timer != null) timer.add(StageTimer.Stage.QUEUE, waited);
+        MetricsRegistry registry = metrics;
+        if (registry != null) {
+            registry.histogram(MetricsRegistry.name("ratelimit.wait", "source", source,
+                "priority", urgency.priority().name().toLowerCase(Locale.ROOT)), Histogram.Unit.NANOSECONDS).record(waited);
+        }
+    }
+
+    // Only the delta-seconds form; an HTTP date falls back to the default
+    private static Duration retryAfter(HttpResponse<?> response) {
+        String value = response.headers().firstValue("Retry-After").orElse("").trim();
+        try {
+            return Duration.ofSeconds(Math.min(60, Math.max(1, Long.parseLong(value))));
+        } catch (NumberFormatException e) {
+            return DEFAULT_BACKOFF;
+        }
+    }
+
+    /**
+     * Sends a request and parses a {@code 200} response. GET responses carrying an {@code ETag}
+     * or {@code Last-Modified} are kept in the {@link HttpCache}; the next fetch of the same URL
+     * asks {@code If-None-Match} / {@code If-Modified-Since}, and a {@code 304} is answered from
+     * the cache, normally with the already parsed value. Values from the cache are shared
+     * between callers, so {@code parser} should return something immutable.
+     */
+    public <T> T fetch(String source, HttpRequest.Builder request, BodyParser<T> parser) throws Exception {
+        return fetch(source, request, parser, true);
+    }
+
+    /**
+     * Like {@link #fetch}, for parsers whose value depends on more than the body, such as one
+     * that only reads part of a feed. The body is revalidated and cached the same way, but
+     * parsed values are never shared: a {@code 304} parses the cached body again. The value
+     * is returned as soon as the parser is done; whatever it left unread is read for the
+     * cache in the background.
+     */
+    public <T> T fetchUnshared(String source, HttpRequest.Builder request, BodyParser<T> parser) throws Exception {
+        return fetch(source, request, parser, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T fetch(String source, HttpRequest.Builder request, BodyParser<T> parser, boolean share)
+            throws Exception {
+        HttpRequest plain = request.copy().build();
+        HttpCache cache = "GET".equals(plain.method()) ? this.cache : null;
+        HttpCache.Entry cached = cache == null ? null : cache.get(plain.uri());
+        HttpRequest.Builder conditional = request.copy();
+        if (cached != null) {
+            if (cached.etag != null) conditional.header("If-None-Match", cached.etag);
+            if (cached.lastModified != null) conditional.header("If-Modified-Since", cached.lastModified);
+        }
+
+        HttpResponse<InputStream> response = send(source, conditional);
+        InputStream body = response.body();
+        boolean handedOff = false;
+        try {
+            if (response.statusCode() == 304 && cached != null) {
+                notModified.incrementAndGet();
+                cache.touch(cached);
+                Object value = share ? cache.parsed(cached) : null;
+                if (value != null) return (T) value;
+                try (InputStream stored = cache.openBody(cached)) {
+                    if (stored != null) {
+                        T parsed = parser.parse(stored);
+                        if (share) cache.rememberParsed(cached, parsed);
+                        return parsed;
+                    }
+                }
+                // The cached file vanished; ask again without validators
+                return fetch(source, request, parser, share);
+            }
+            if (response.statusCode() != 200) {
+                throw new HttpStatusException(source + " returned HTTP " + response.statusCode(), response.statusCode());
+            }
+
+            String etag = response.headers().firstValue("ETag").orElse(null);
+            String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+            if (cache == null || (etag == null && lastModified == null)) {
+                return parser.parse(body);
+            }
+            // Parse while recording, so the body is still streamed to the parser
+            HttpCache.Recorder recorder = new HttpCache.Recorder(body);
+            T value = parser.parse(recorder);
+            if (!share) {
+                Thread.ofVirtual().start(() -> {
+                    try (body) {
+                        byte[] copy = recorder.finish();
+                        if (copy != null) cache.put(plain.uri(), etag, lastModified, copy, null);
+                    } catch (IOException e) {
+                        // Only the cache entry is lost
+                    }
+                });
+                handedOff = true;
+                return value;
+            }
+            byte[] copy = recorder.finish();
+            if (copy != null) cache.put(plain.uri(), etag, lastModified, copy, value);
+            return value;
+        } finally {
+            if (!handedOff) body.close();
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(requests.get(), compressed.get(), wireBytes.get(), decodedBytes.get(), reused.get(),
+            notModified.get());
+    }
+
+    private HttpResponse.BodySubscriber<InputStream> decodingHandler(HttpResponse.ResponseInfo info, long deadline) {
+        String encoding = info.headers().firstValue("Content-Encoding").orElse("identity").trim().toLowerCase(Locale.ROOT);
+        if (!encoding.equals("identity")) compressed.incrementAndGet();
+        // The mapper runs on the client's threads, so it must not read; decoding starts lazily
+        return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofInputStream(),
+            raw -> new CountingInputStream(new LazyDecoder(new CountingInputStream(
+                new WireInputStream(new DeadlineInputStream(raw, deadline)), wireBytes), encoding), decodedBytes));
+    }
+
+    private static ScheduledThreadPoolExecutor deadlineScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+            Thread.ofVirtual().name("http-deadline").factory());
+        // Most bodies are read well before their deadline; do not keep their tasks around
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    private static String hostOf(URI uri) {
+        return uri.getHost() + ":" + uri.getPort();
+    }
+
+    // Fails reads once the exchange is past its deadline. The stream is closed at the deadline,
+    // which also ends a read that is blocked waiting for bytes that never come
+    private static final class DeadlineInputStream extends FilterInputStream {
+        private final ScheduledFuture<?> expiry;
+        private volatile boolean expired;
+
+        DeadlineInputStream(InputStream in, long deadline) {
+            super(in);
+            expiry = DEADLINES.schedule(this::expire, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        private void expire() {
+            expired = true;
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkExpired();
+            int b;
+            try {
+                b = super.read();
+            } catch (IOException e) {
+                checkExpired();
+                throw e;
+            }
+            if (b < 0) reachedEnd();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            checkExpired();
+            int n;
+            try {
+                n = super.read(buf, off, len);
+            } catch (IOException e) {
+                checkExpired();
+                throw e;
+            }
+            if (n < 0) reachedEnd();
+            return n;
+        }
+
+        // A read ended by the close at the deadline can look like the end of the body
+        private void reachedEnd() throws HttpTimeoutException {
+            checkExpired();
+            expiry.cancel(false);
+        }
+
+        private void checkExpired() throws HttpTimeoutException {
+            if (expired) throw new HttpTimeoutException("response body not read before the request timed out");
+        }
+
+        @Override
+        public void close() throws IOException {
+            expiry.cancel(false);
+            super.close();
+        }
+    }
+
+    // Charges the time spent waiting for body bytes, and their number, to the calling source
+    private static final class WireInputStream extends FilterInputStream {
+
+        WireInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int b = super.read();
+            charge(start, b >= 0 ? 1 : 0);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            int n = super.read(buf, off, len);
+            charge(start, Math.max(0, n));
+            return n;
+        }
+
+        private static void charge(long start, long bytes) {
+            StageTimer timer = StageTimer.current();
+            if (timer == null) return;
+            timer.add(StageTimer.Stage.BODY, System.nanoTime() - start);
+            timer.addWireBytes(bytes);
+        }
+    }
+
+    // Adds every byte read to a counter
+    private static final class CountingInputStream extends FilterInputStream {
+        private final AtomicLong counter;
+
+        CountingInputStream(InputStream in, AtomicLong counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) counter.incrementAndGet();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n = super.read(buf, off, len);
+            if (n > 0) counter.addAndGet(n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if (skipped > 0) counter.addAndGet(skipped);
+            return skipped;
+        }
+    }
+
+    // Picks the decoder on the first read, because building a GZIPInputStream reads the header
+    private static final class LazyDecoder extends InputStream {
+        private final InputStream raw;
+        private final String encoding;
+        private InputStream decoded;
+        // Our own Inflater, which InflaterInputStream does not end(); its native memory is
+        // freed at end of stream or on close rather than whenever it is finalized
+        private Inflater inflater;
+        private boolean eof;
+
+        LazyDecoder(InputStream raw, String encoding) {
+            this.raw = raw;
+            this.encoding = encoding;
+        }
+
+        private InputStream decoded() throws IOException {
+            if (decoded == null) {
+                decoded = switch (encoding) {
+                    case "gzip", "x-gzip" -> new GZIPInputStream(raw, 8192);
+                    case "deflate" -> inflate();
+                    default -> raw;
+                };
+            }
+            return decoded;
+        }
+
+        // "deflate" should be zlib-wrapped, but some servers send a raw deflate stream
+        private InputStream inflate() throws IOException {
+            PushbackInputStream peek = new PushbackInputStream(raw, 2);
+            int b0 = peek.read();
+            int b1 = peek.read();
+            if (b1 >= 0) peek.unread(b1);
+            if (b0 >= 0) peek.unread(b0);
+            boolean zlib = b0 >= 0 && b1 >= 0 && (b0 & 0x0F) == 8 && ((b0 << 8) | b1) % 31 == 0;
+            inflater = new Inflater(!zlib);
+            return new InflaterInputStream(peek, inflater, 8192);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (eof) return -1;
+            int b = decoded().read();
+            if (b < 0) reachedEnd();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            if (eof) return -1;
+            int n = decoded().read(buf, off, len);
+            if (n < 0) reachedEnd();
+            return n;
+        }
+
+        private void reachedEnd() {
+            eof = true;
+            endInflater();
+        }
+
+        private void endInflater() {
+            if (inflater == null) return;
+            inflater.end();
+            inflater = null;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return decoded == null || eof ? 0 : decoded.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (decoded != null) decoded.close();
+                else raw.close();
+            } finally {
+                endInflater();
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.galgame.search.net;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket for the requests of one source: {@code permitsPerSecond} on average, with
+ * bursts of up to {@code burst}. Callers that find the bucket empty queue up; interactive
+ * requests are served before background ones, and in arrival order within a priority.
+ * The priority of a request comes from the calling thread (see {@link #call}); it is an
+ * {@link Urgency} rather than a plain value so a queued background request can be raised
+ * when a user starts waiting for the same result.
+ */
+public final class RateLimiter {
+
+    public enum Priority { INTERACTIVE, BACKGROUND }
+
+    /**
+     * Priority of one logical request, shared by everyone waiting for it.
+     */
+    public static final class Urgency {
+        private volatile Priority priority;
+
+        public Urgency(Priority priority) {
+            this.priority = priority;
+        }
+
+        public Priority priority() {
+            return priority;
+        }
+
+        /**
+         * Raises the priority to {@code priority} if that is more urgent; never lowers it.
+         */
+        public void raise(Priority priority) {
+            if (priority.ordinal() < this.priority.ordinal()) this.priority = priority;
+        }
+    }
+
+    private static final Urgency DEFAULT = new Urgency(Priority.INTERACTIVE);
+    private static final ThreadLocal<Urgency> CURRENT = new ThreadLocal<>();
+    // Waiters that are not first re-check this often, in case their urgency was raised
+    private static final long RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private record Waiter(Urgency urgency, long seq) {}
+
+    private final double permitsPerNano;
+    private final double burst;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final List<Waiter> waiters = new ArrayList<>();
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+    private long pausedUntil = refilledAt;
+    private long seq;
+
+    public RateLimiter(double permitsPerSecond, int burst) {
+        this.permitsPerNano = permitsPerSecond / 1e9;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+    }
+
+    /**
+     * Runs {@code call} with requests on this thread queued at {@code urgency}.
+     */
+    public static <T> T call(Urgency urgency, Callable<T> call) throws Exception {
+        Urgency outer = CURRENT.get();
+        CURRENT.set(urgency);
+        try {
+            return call.call();
+        } finally {
+            if (outer != null) CURRENT.set(outer);
+            else CURRENT.remove();
+        }
+    }
+
+    /**
+     * The urgency of requests made on this thread; interactive unless set by {@link #call}.
+     */
+    public static Urgency current() {
+        Urgency urgency = CURRENT.get();
+        return urgency != null ? urgency : DEFAULT;
+    }
+
+    /**
+     * Takes one permit, waiting for it if needed. Returns the nanoseconds spent waiting.
+     */
+    public long acquire(Urgency urgency) throws InterruptedException {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            Waiter me = new Waiter(urgency, seq++);
+            waiters.add(me);
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    refill(now);
+                    if (first() == me) {
+                        long wait = pausedUntil - now > 0 ? pausedUntil - now
+                            : tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / permitsPerNano);
+                        if (wait <= 0) {
+                            tokens -= 1;
+                            waiters.remove(me);
+                            changed.signalAll();
+                            return now - start;
+                        }
+                        changed.awaitNanos(wait);
+                    } else {
+                        changed.awaitNanos(RECHECK_NANOS);
+                    }
+                }
+            } catch (InterruptedException e) {
+                waiters.remove(me);
+                changed.signalAll();
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops handing out permits for {@code duration}, e.g. after a {@code 429} response,
+     * and empties the bucket so requests resume at the steady rate rather than in a burst.
+     */
+    public void pause(Duration duration) {
+        lock.lock();
+        try {
+            long until = System.nanoTime() + duration.toNanos();
+            if (until - pausedUntil > 0) pausedUntil = until;
+            tokens = 0;
+            refilledAt = pausedUntil;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueuedCount() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill(long now) {
+        if (now - refilledAt <= 0) return;
+        tokens = Math.min(burst, tokens + (now - refilledAt) * permitsPerNano);
+        refilledAt = now;
+    }
+
+    private Waiter first() {
+        Waiter best = null;
+        for (Waiter w : waiters) {
+            if (best == null) {
+                best = w;
+                continue;
+            }
+            int byPriority = Integer.compare(w.urgency().priority().ordinal(), best.urgency().priority().ordinal());
+            if (byPriority < 0 || (byPriority == 0 && w.seq() < best.seq())) best = w;
+        }
+        return best;
+    }
+}
@@ -1,61 +1,785 @@
 package com.galgame.search.service;
 
+import com.galgame.search.index.CatalogIndex;
+import com.galgame.search.metrics.MetricsRegistry;
+import com.galgame.search.metrics.SearchEvent;
+import com.galgame.search.metrics.StageTimer;
 import com.galgame.search.model.Game;
 import com.galgame.search.model.Resource;
-import javafx.application.Platform;
+import com.galgame.search.net.HttpCache;
+import com.galgame.search.net.HttpStatusException;
+import com.galgame.search.net.RateLimiter;
+import com.galgame.search.net.HttpTransport;
+import com.galgame.search.store.CatalogStore;
+import com.galgame.search.store.SnapshotStore;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class AggregatedService {
     private final List<GameSource> sources;
     private final ExecutorService executor;
+    private final AtomicInteger inFlight = new AtomicInteger();
 
+    // One connection pool for every source
+    private final HttpTransport transport;
+
+    // Time budgets: the whole search never takes longer than searchBudget, and each
+    // source gets its own timeout (capped by whatever is left of the budget).
+    private volatile Duration searchBudget = Duration.ofSeconds(10);
+    private volatile Duration defaultSourceTimeout = Duration.ofSeconds(8);
+    private final Map<String, Duration> sourceTimeouts = new ConcurrentHashMap<>();
+
+    // Repeat searches are answered from memory; stale entries are refreshed in the background
+    private final SearchCache cache = new SearchCache(256, 8L * 1024 * 1024);
+
+    // Identical searchGame / getDownloads calls that overlap share one request
+    private final SingleFlight<String, SearchPage> searchFlights = new SingleFlight<>(this::submitTracked);
+    private final SingleFlight<String, List<Resource>> downloadFlights = new SingleFlight<>(this::submitTracked);
+    // Rate limiter priority of each shared request, raised when an interactive caller joins
+    private final Map<String, RateLimiter.Urgency> flightUrgency = new ConcurrentHashMap<>();
+
+    // Resource lists loaded by clicks or by prefetching, so the detail pane rarely waits
+    private final ResourceCache resourceCache = new ResourceCache(300, Duration.ofMinutes(10));
+    private final ResourcePrefetcher prefetcher = new ResourcePrefetcher(
+        g -> getDownloadsAsync(g, RateLimiter.Priority.BACKGROUND), g -> resourceCache.contains(g.source(), g.id()), 2);
+
+    // Holds the snapshot, HTTP cache, catalogue store and index
+    private final Path dataDir;
+
+    // Optional local index over one source's catalogue, searched before the network
+    private static final int INDEX_PAGE_SIZE = 30;
+    // A complete index stands in for the source only while its last sync is this recent
+    private static final Duration INDEX_AUTHORITATIVE_FOR = Duration.ofHours(1);
+    private volatile CatalogIndex catalogIndex;
+
+    // Local copy of the browsable source's catalogue, kept current by a background sync that
+    // only the app turns on; benchmarks and harnesses leave the source alone
+    private static final Duration CATALOG_SYNC_DELAY = Duration.ofSeconds(30);
+    private static final Duration CATALOG_SYNC_INTERVAL = Duration.ofMinutes(30);
+    private final CatalogStore catalogStore;
+    private volatile CatalogSync catalogSync;
+    private volatile boolean catalogSyncEnabled;
+
+    // Recent results survive restarts so the first screen does not wait on the network
+    private final SnapshotStore snapshot;
+
+    // Latency, outcome and payload of every source call, shown in the diagnostics panel
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final SourceMetrics sourceMetrics = new SourceMetrics(metrics);
+
+    // A source that keeps failing or crawling is skipped for a while instead of holding up
+    // every search; see CircuitBreaker for the thresholds
+    private static final Duration SLOW_SOURCE_CALL = Duration.ofSeconds(5);
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final List<Runnable> healthListeners = new CopyOnWriteArrayList<>();
+
+    // Every source runs its calls in its own bulkhead, so a slow one cannot crowd out the rest
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    /**
+     * The service the app runs, over the built-in sources, keeping its files in
+     * {@link #defaultDataDirectory()}.
+     */
     public AggregatedService() {
-        this.sources = new ArrayList<>();
-        this.executor = Executors.newCachedThreadPool();
+        this(defaultDataDirectory(), new HttpTransport(),
+            transport -> List.of(new TouchGalService(transport), new NyaaSource(transport)));
+    }
+
+    /**
+     * A service over other sources than the built-in ones, e.g. in-process stubs or sources
+     * pointed at a local stand-in server. {@code sources} receives the shared transport. The
+     * snapshot, HTTP cache and catalogue files go to {@code dataDir}, such as a temporary
+     * directory, so they stay apart from the app's own.
+     */
+    public AggregatedService(Path dataDir, Function<HttpTransport, List<GameSource>> sources) {
+        this(dataDir, new HttpTransport(), sources);
+    }
+
+    private AggregatedService(Path dataDir, HttpTransport transport, Function<HttpTransport, List<GameSource>> sources) {
+        this.dataDir = dataDir;
+        this.transport = transport;
+        this.catalogStore = new CatalogStore(dataDir.resolve("catalog.bin"));
+        this.snapshot = new SnapshotStore(dataDir.resolve("snapshot.bin"), 50, 300, 4L * 1024 * 1024);
+        // Copy-on-write so addSource is safe while a search iterates the list
+        this.sources = new CopyOnWriteArrayList<>(sources.apply(transport));
+        // All blocking network work runs here, one cheap virtual thread per task
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
         
-        // Register available sources
-        this.sources.add(new TouchGalService());
-        this.sources.add(new NyaaSource());
+        transport.setDefaultTimeout(defaultSourceTimeout);
+        transport.setMetrics(metrics);
+        // Bursts from prefetching, syncing and fast clicking are smoothed out before they
+        // reach the sites and earn a 429
+        transport.setRateLimit("TouchGal", 5, 10);
+        transport.setRateLimit("Nyaa", 2, 4);
+        setBulkhead("TouchGal", 8, 16, 64, Duration.ofSeconds(2));
+        setBulkhead("Nyaa", 4, 8, 32, Duration.ofSeconds(3));
+        // Nyaa feeds and TouchGal resource lists are revalidated instead of downloaded again
+        transport.setCache(new HttpCache(dataDir.resolve("http-cache"), 16L * 1024 * 1024));
+
+        // The TouchGal catalogue changes slowly; Nyaa gets new uploads all the time
+        cache.setTtl("TouchGal", Duration.ofMinutes(10));
+        cache.setTtl("Nyaa", Duration.ofMinutes(3));
+
+        registerGauges();
+        loadSnapshot();
+        submitTracked(this::loadCatalog);
+    }
+
+    /**
+     * Where the app keeps its files: {@code .galgame-search} in the user's home directory.
+     */
+    public static Path defaultDataDirectory() {
+        return Path.of(System.getProperty("user.home"), ".galgame-search");
+    }
+
+    private void registerGauges() {
+        metrics.gauge("search.cache.hit.ratio", () -> ratio(cache.getHitCount() + cache.getStaleHitCount(), cache.getMissCount()));
+        metrics.gauge("search.cache.entries", cache::size);
+        metrics.gauge("search.cache.bytes", cache::byteSize);
+        metrics.gauge("resource.cache.hit.ratio", () -> ratio(resourceCache.getHitCount(), resourceCache.getMissCount()));
+        metrics.gauge("resource.cache.entries", resourceCache::size);
+        metrics.gauge("prefetch.queued", prefetcher::getQueuedCount);
+        metrics.gauge("prefetch.running", prefetcher::getRunningCount);
+        metrics.gauge("prefetch.completed", prefetcher::getCompletedCount);
+        metrics.gauge("prefetch.dropped", prefetcher::getDroppedCount);
+        metrics.gauge("http.requests", () -> transport.getStats().requests());
+        metrics.gauge("http.not_modified", () -> transport.getStats().notModified());
+        metrics.gauge("http.compression.ratio", () -> transport.getStats().compressionRatio());
+        metrics.gauge("http.connection.reuse", () -> transport.getStats().connectionReuseRate());
+        metrics.gauge("executor.in_flight", inFlight::get);
+    }
+
+    private static double ratio(long hits, long misses) {
+        return hits + misses == 0 ? 0.0 : (double) hits / (hits + misses);
+    }
+
+    private void loadCatalog() {
+        try {
+            CatalogIndex index = CatalogIndex.load(dataDir.resolve("catalog.idx"));
+            // A newer index may have been set while this one was loading
+            if (index != null && catalogIndex == null) catalogIndex = index;
+        } catch (IOException e) {
+            System.err.println("Failed to load catalogue index: " + e.getMessage());
+        }
+        try {
+            catalogStore.load();
+        } catch (IOException e) {
+            System.err.println("Failed to load catalogue store: " + e.getMessage());
+            return;
+        }
+        for (GameSource source : sources) {
+            if (source instanceof BrowsableSource browsable) {
+                CatalogSync sync = new CatalogSync(browsable, this::callSource, catalogStore,
+                    dataDir.resolve("catalog.idx"), executor, 4, this::setCatalogIndex);
+                catalogSync = sync;
+                // startCatalogSync may have been called while the store was loading
+                if (catalogSyncEnabled) sync.schedule(CATALOG_SYNC_DELAY, CATALOG_SYNC_INTERVAL);
+                break;
+            }
+        }
+    }
+
+    private void loadSnapshot() {
+        try {
+            snapshot.load();
+        } catch (IOException e) {
+            System.err.println("Failed to load snapshot: " + e.getMessage());
+        }
+        // Seed as stale: served instantly, refreshed on first use
+        for (SnapshotStore.SearchEntry e : snapshot.recentSearches()) {
+            cache.putStale(e.source(), e.keyword(), e.games());
+        }
     }
 
     public void addSource(GameSource source) {
         this.sources.add(source);
     }
 
+    public void setSearchBudget(Duration budget) {
+        this.searchBudget = budget;
+    }
+
+    public void setDefaultSourceTimeout(Duration timeout) {
+        this.defaultSourceTimeout = timeout;
+        transport.setDefaultTimeout(timeout);
+    }
+
+    public void setSourceTimeout(String sourceName, Duration timeout) {
+        sourceTimeouts.put(sourceName, timeout);
+        // Also bounds requests outside a search, such as resource downloads
+        transport.setTimeout(sourceName, timeout);
+    }
+
     /**
-     * Searches all sources in parallel.
-     * returns a Future that completes when all sources have returned (or timed out).
-     */
-    public List<Game> searchAll(String keyword) {
-        List<CompletableFuture<List<Game>>> futures = sources.stream()
-            .map(source -> CompletableFuture.supplyAsync(() -> {
-                try {
-                    return source.searchGame(keyword);
-                } catch (Exception e) {
-                    System.err.println("Error searching " + source.getSourceName() + ": " + e.getMessage());
-                    return Collections.<Game>emptyList();
+     * Requests per second (on average) and burst size allowed for a source; zero removes the limit.
+     */
+    public void setRateLimit(String sourceName, double permitsPerSecond, int burst) {
+        transport.setRateLimit(sourceName, permitsPerSecond, burst);
+    }
+
+    /**
+     * Concurrency limit for a source's calls: starts at {@code initialLimit}, adapts between 1
+     * and {@code maxLimit} depending on whether calls finish within {@code targetLatency}, and
+     * lets at most {@code maxQueued} further calls wait for a slot.
+     */
+    public void setBulkhead(String sourceName, int initialLimit, int maxLimit, int maxQueued, Duration targetLatency) {
+        Bulkhead bulkhead = new Bulkhead(initialLimit, 1, maxLimit, maxQueued, targetLatency);
+        bulkheads.put(sourceName, bulkhead);
+        registerBulkheadGauges(sourceName, bulkhead);
+    }
+
+    /**
+     * The bulkhead of a source; sources without their own settings get the defaults on first use.
+     */
+    public Bulkhead getBulkhead(String sourceName) {
+        return bulkheads.computeIfAbsent(sourceName, name -> {
+            Bulkhead bulkhead = new Bulkhead(4, 1, 16, 64, Duration.ofSeconds(3));
+            registerBulkheadGauges(name, bulkhead);
+            return bulkhead;
+        });
+    }
+
+    private void registerBulkheadGauges(String sourceName, Bulkhead bulkhead) {
+        metrics.gauge(MetricsRegistry.name("bulkhead.limit", "source", sourceName), bulkhead::getLimit);
+        metrics.gauge(MetricsRegistry.name("bulkhead.in_flight", "source", sourceName), bulkhead::getInFlightCount);
+        metrics.gauge(MetricsRegistry.name("bulkhead.queued", "source", sourceName), bulkhead::getQueuedCount);
+        metrics.gauge(MetricsRegistry.name("bulkhead.rejected", "source", sourceName), bulkhead::getRejectedCount);
+    }
+
+    public HttpTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Installs a local index; searches of its source are answered from it first.
+     */
+    public void setCatalogIndex(CatalogIndex index) {
+        this.catalogIndex = index;
+    }
+
+    public CatalogIndex getCatalogIndex() {
+        return catalogIndex;
+    }
+
+    /**
+     * Keeps the local catalogue in step with the browsable source: a first sync runs shortly
+     * after the catalogue store has loaded, then one every half hour. Off until called.
+     */
+    public void startCatalogSync() {
+        catalogSyncEnabled = true;
+        CatalogSync sync = catalogSync;
+        if (sync != null) sync.schedule(CATALOG_SYNC_DELAY, CATALOG_SYNC_INTERVAL);
+    }
+
+    /**
+     * Stops the scheduled catalogue sync; a run in progress is interrupted.
+     */
+    public void stopCatalogSync() {
+        catalogSyncEnabled = false;
+        CatalogSync sync = catalogSync;
+        if (sync != null) sync.stop();
+    }
+
+    /**
+     * The background catalogue sync, or null until the catalogue store has been loaded.
+     */
+    public CatalogSync getCatalogSync() {
+        return catalogSync;
+    }
+
+    public SearchCache getCache() {
+        return cache;
+    }
+
+    /**
+     * The circuit breaker guarding a source, created on first use.
+     */
+    public CircuitBreaker getCircuitBreaker(String sourceName) {
+        return breakers.computeIfAbsent(sourceName, name -> {
+            CircuitBreaker breaker = new CircuitBreaker(name, 20, 5, 0.5, SLOW_SOURCE_CALL,
+                Duration.ofSeconds(15), Duration.ofMinutes(5), this::onBreakerChange);
+            metrics.gauge(MetricsRegistry.name("source.breaker.state", "source", name), () -> breaker.state().ordinal());
+            metrics.gauge(MetricsRegistry.name("source.breaker.failure_rate", "source", name), breaker::failureRate);
+            metrics.gauge(MetricsRegistry.name("source.breaker.rejected", "source", name), breaker::getRejectedCount);
+            return breaker;
+        });
+    }
+
+    /**
+     * Names of the sources whose breaker is open or probing, in registration order.
+     */
+    public List<String> getTrippedSources() {
+        List<String> tripped = new ArrayList<>();
+        for (GameSource source : sources) {
+            CircuitBreaker breaker = breakers.get(source.getSourceName());
+            if (breaker != null && breaker.state() != CircuitBreaker.State.CLOSED) tripped.add(source.getSourceName());
+        }
+        return tripped;
+    }
+
+    /**
+     * Runs {@code listener} whenever a source's breaker opens, probes or closes again.
+     * Called on a worker thread.
+     */
+    public void addSourceHealthListener(Runnable listener) {
+        healthListeners.add(listener);
+    }
+
+    private void onBreakerChange(CircuitBreaker breaker) {
+        System.err.println("Circuit breaker for " + breaker.name() + " is now " + breaker.state());
+        healthListeners.forEach(Runnable::run);
+    }
+
+    // Local overload and "not found" answers say nothing about the source's health, and neither
+    // does a cancelled call unless it had already been slow upstream
+    private static void report(CircuitBreaker breaker, long upstreamNanos, Throwable error) {
+        if (error == null) {
+            breaker.onSuccess(upstreamNanos);
+            return;
+        }
+        String cause = SourceMetrics.cause(error);
+        if (cause.equals("cancelled")) {
+            breaker.onAbandoned(upstreamNanos);
+        } else if (cause.equals("rejected")) {
+            breaker.onIgnored();
+        } else if (cause.equals("http_4xx") && ((HttpStatusException) error).statusCode() != 429) {
+            breaker.onSuccess(upstreamNanos);
+        } else {
+            breaker.onFailure();
+        }
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * The most recent failure of each source that has failed since start-up.
+     */
+    public Map<String, SourceMetrics.LastError> lastErrors() {
+        return sourceMetrics.lastErrors();
+    }
+
+    /**
+     * Keyword of the most recent search saved in the snapshot, or null on a first launch.
+     */
+    public String lastSearchKeyword() {
+        List<SnapshotStore.SearchEntry> recent = snapshot.recentSearches();
+        return recent.isEmpty() ? null : recent.get(0).keyword();
+    }
+
+    /**
+     * Saved results for a keyword, in the order of the registered sources.
+     */
+    public List<Game> snapshotGames(String keyword) {
+        String normalized = SearchCache.normalize(keyword);
+        List<SnapshotStore.SearchEntry> entries = snapshot.recentSearches();
+        List<Game> games = new ArrayList<>();
+        for (GameSource source : sources) {
+            for (SnapshotStore.SearchEntry e : entries) {
+                if (e.source().equals(source.getSourceName()) && e.keyword().equals(normalized)) {
+                    games.addAll(e.games());
+                    break;
                 }
-            }, executor))
+            }
+        }
+        return games;
+    }
+
+    /**
+     * Saved resource list for a game, or null if it was never loaded before.
+     */
+    public List<Resource> snapshotResources(Game game) {
+        List<Resource> saved = snapshot.resources(game.source(), game.id());
+        // The catalogue store is only consulted once loaded, so the UI never waits for it
+        if (saved == null && catalogSync != null) {
+            Game synced = catalogStore.game(game.id());
+            if (synced != null && synced.source().equals(game.source())) saved = catalogStore.resources(game.id());
+        }
+        return saved;
+    }
+
+    public List<String> getSourceNames() {
+        return sources.stream().map(GameSource::getSourceName).collect(Collectors.toList());
+    }
+
+    /**
+     * Searches all sources in parallel and hands each source's result to {@code onResult}
+     * as soon as that source finishes, so fast sources are not held back by slow ones.
+     * The callback runs on a worker thread; UI callers must hop back to the FX thread.
+     * The returned future completes once every source has reported; a source that misses
+     * its deadline is cancelled and reported as {@link SourceResult.Status#TIMED_OUT}.
+     * Cancelling the returned future cancels every source call still running (including its
+     * HTTP exchange) and suppresses any further callbacks.
+     */
+    public CompletableFuture<Void> searchStreaming(String keyword, Consumer<SourceResult> onResult) {
+        return streamSources(keyword, true, "streaming", onResult);
+    }
+
+    /**
+     * Like {@link #searchStreaming} but always asks the sources, bypassing the cache.
+     * Used to revalidate results restored from the snapshot.
+     */
+    public CompletableFuture<Void> revalidate(String keyword, Consumer<SourceResult> onResult) {
+        return streamSources(keyword, false, "revalidate", onResult);
+    }
+
+    private CompletableFuture<Void> streamSources(String keyword, boolean useCache, String mode,
+                                                  Consumer<SourceResult> onResult) {
+        long deadline = System.nanoTime() + searchBudget.toNanos();
+        SearchEvent event = beginSearchEvent(keyword, mode);
+        CompletableFuture<Void> search = new CompletableFuture<>();
+        List<CompletableFuture<SourceResult>> calls = sources.stream()
+            .map(source -> querySource(source, keyword, 1, deadline, useCache))
+            .collect(Collectors.toList());
+
+        CompletableFuture<?>[] delivered = calls.stream()
+            .map(call -> call.thenAccept(r -> {
+                if (!search.isCancelled()) onResult.accept(r);
+            }))
+            .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(delivered).whenComplete((v, ex) -> {
+            if (ex != null) search.completeExceptionally(ex);
+            else search.complete(null);
+        });
+
+        search.whenComplete((v, ex) -> {
+            if (search.isCancelled()) calls.forEach(call -> call.cancel(true));
+            if (event.shouldCommit()) {
+                event.cancelled = search.isCancelled();
+                commitSearchEvent(event, calls);
+            }
+        });
+        return search;
+    }
+
+    /**
+     * Searches all sources in parallel.
+     * Blocks until all sources have returned or the search budget is used up; results keep
+     * the order of the registered sources and late sources are marked as timed out.
+     */
+    public SearchResult searchAll(String keyword) {
+        long deadline = System.nanoTime() + searchBudget.toNanos();
+        SearchEvent event = beginSearchEvent(keyword, "blocking");
+        List<CompletableFuture<SourceResult>> futures = sources.stream()
+            .map(source -> querySource(source, keyword, 1, deadline, true))
             .collect(Collectors.toList());
 
-        // Wait for all
+        // Wait for all (each future is bounded by its own deadline)
         CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
 
         // Collect results
         List<Game> allGames = new ArrayList<>();
-        for (CompletableFuture<List<Game>> f : futures) {
-            try {
-                allGames.addAll(f.get());
-            } catch (Exception e) { 
-                // Should not happen as we catch inside supplyAsync
+        List<SourceResult> sourceResults = new ArrayList<>();
+        for (CompletableFuture<SourceResult> f : futures) {
+            SourceResult r = f.join();
+            sourceResults.add(r);
+            allGames.addAll(r.games());
+        }
+        if (event.shouldCommit()) commitSearchEvent(event, futures);
+        return new SearchResult(allGames, sourceResults);
+    }
+
+    private SearchEvent beginSearchEvent(String keyword, String mode) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        event.keyword = keyword;
+        event.mode = mode;
+        event.sources = sources.size();
+        return event;
+    }
+
+    // Only called once every source has reported (or the search was cancelled)
+    private static void commitSearchEvent(SearchEvent event, List<CompletableFuture<SourceResult>> calls) {
+        for (CompletableFuture<SourceResult> call : calls) {
+            if (!call.isDone() || call.isCompletedExceptionally()) continue;
+            SourceResult r = call.join();
+            event.games += r.games().size();
+            if (r.status() == SourceResult.Status.FAILED) event.failed++;
+            if (r.status() == SourceResult.Status.TIMED_OUT) event.timedOut++;
+        }
+        event.commit();
+    }
+
+    /**
+     * Fetches one page from one source, under the same cache, deadline and cancellation rules
+     * as a full search. Used to load further pages while the user scrolls.
+     */
+    public CompletableFuture<SourceResult> searchSourcePage(String sourceName, String keyword, int page) {
+        for (GameSource source : sources) {
+            if (source.getSourceName().equals(sourceName)) {
+                return querySource(source, keyword, page, System.nanoTime() + searchBudget.toNanos(), true);
+            }
+        }
+        return CompletableFuture.failedFuture(new IllegalArgumentException("Source not found: " + sourceName));
+    }
+
+    private CompletableFuture<SourceResult> querySource(GameSource source, String keyword, int page,
+                                                        long deadlineNanos, boolean useCache) {
+        String name = source.getSourceName();
+        long start = System.nanoTime();
+
+        CatalogIndex index = catalogIndex;
+        List<Game> localHits = List.of();
+        if (index != null && index.source().equals(name)) {
+            // A complete, freshly synced catalogue: no need to ask the network at all
+            if (indexIsAuthoritative(index)) {
+                CatalogIndex.Result local = index.search(keyword, (page - 1) * INDEX_PAGE_SIZE, INDEX_PAGE_SIZE);
+                countLookup(name, "index");
+                return CompletableFuture.completedFuture(new SourceResult(name, local.games(), elapsedMillis(start),
+                    SourceResult.Status.OK, null, page, local.total() > page * INDEX_PAGE_SIZE));
             }
+            // Otherwise the remote source stays the reference, however many hits the index has.
+            // Paging follows the remote's pages; the index only puts its best hits ahead of the
+            // first one, and later remote pages that repeat them are merged into the same rows.
+            if (page == 1) localHits = index.search(keyword, 0, INDEX_PAGE_SIZE).games();
+        }
+        List<Game> firstHits = localHits;
+
+        SearchCache.Lookup cached = useCache ? cache.get(name, keyword, page) : null;
+        if (cached != null) {
+            countLookup(name, cached.stale() ? "stale" : "hit");
+            if (cached.stale()) refreshInBackground(source, keyword, page);
+            return CompletableFuture.completedFuture(new SourceResult(name, withLocalHits(firstHits, cached.games()),
+                elapsedMillis(start), SourceResult.Status.OK, null, page, cached.hasMore()));
         }
-        return allGames;
+
+        countLookup(name, "miss");
+        long timeoutNanos = Math.max(0, Math.min(sourceTimeout(name).toNanos(), deadlineNanos - start));
+
+        CompletableFuture<SearchPage> fetch = fetchPage(source, keyword, page, RateLimiter.Priority.INTERACTIVE);
+        CompletableFuture<SourceResult> call = fetch
+            .orTimeout(timeoutNanos, TimeUnit.NANOSECONDS)
+            .handle((result, ex) -> {
+                if (ex == null) {
+                    countResult(name, SourceResult.Status.OK);
+                    return new SourceResult(name, withLocalHits(firstHits, result.games()), elapsedMillis(start),
+                        SourceResult.Status.OK, null, page, result.hasMore());
+                }
+                Throwable cause = unwrap(ex);
+                SourceResult.Status status;
+                if (cause instanceof CancellationException) {
+                    status = SourceResult.Status.CANCELLED;
+                } else if (cause instanceof SourceUnavailableException) {
+                    status = SourceResult.Status.SKIPPED;
+                } else if (cause instanceof TimeoutException) {
+                    System.err.println("Search timed out for " + name + " after " + elapsedMillis(start) + "ms");
+                    status = SourceResult.Status.TIMED_OUT;
+                } else {
+                    System.err.println("Error searching " + name + ": " + cause.getMessage());
+                    status = SourceResult.Status.FAILED;
+                }
+                if (status != SourceResult.Status.CANCELLED && !firstHits.isEmpty()) {
+                    // The local hits are still worth showing
+                    return new SourceResult(name, firstHits, elapsedMillis(start), SourceResult.Status.OK, null,
+                        page, true);
+                }
+                countResult(name, status);
+                // A failed page can be requested again, so keep reporting that more may exist
+                return new SourceResult(name, List.of(), elapsedMillis(start), status, cause, page, true);
+            });
+        // Cancelling (or timing out) only detaches this caller from the shared request; the
+        // request itself, including its HttpClient.send, is interrupted once nobody waits for it
+        call.whenComplete((v, ex) -> {
+            if (call.isCancelled()) fetch.cancel(true);
+        });
+        return call;
+    }
+
+    private void countResult(String sourceName, SourceResult.Status status) {
+        metrics.counter(MetricsRegistry.name("search.results", "source", sourceName, "status",
+            status.name().toLowerCase(Locale.ROOT))).increment();
+    }
+
+    private void countLookup(String sourceName, String answeredBy) {
+        metrics.counter(MetricsRegistry.name("search.lookups", "source", sourceName, "answered", answeredBy)).increment();
+    }
+
+    private boolean indexIsAuthoritative(CatalogIndex index) {
+        long syncedAt = catalogStore.checkpoint().completedAtMillis();
+        return index.isComplete() && System.currentTimeMillis() - syncedAt < INDEX_AUTHORITATIVE_FOR.toMillis();
+    }
+
+    // Local hits first, then the remote games the index did not have
+    private static List<Game> withLocalHits(List<Game> local, List<Game> remote) {
+        if (local.isEmpty()) return remote;
+        List<Game> merged = new ArrayList<>(local);
+        Set<String> seen = new HashSet<>();
+        for (Game g : local) seen.add(g.id());
+        for (Game g : remote) {
+            if (seen.add(g.id())) merged.add(g);
+        }
+        return merged;
+    }
+
+    private CompletableFuture<SearchPage> fetchPage(GameSource source, String keyword, int page,
+                                                    RateLimiter.Priority priority) {
+        String key = source.getSourceName() + '\u0000' + SearchCache.normalize(keyword) + '\u0000' + page;
+        return executeFlight(searchFlights, key, priority, () -> {
+            SearchPage result = callSource(source.getSourceName(), "search", () -> source.searchPage(keyword, page));
+            remember(source.getSourceName(), keyword, result);
+            return result;
+        });
+    }
+
+    /**
+     * Calls into a source that goes upstream. The call passes the source's circuit breaker,
+     * then waits for a rate limiter permit, and only then for a bulkhead slot, so a slot is
+     * never held while waiting in the rate limiter's priority queue. The breaker judges the
+     * call by its upstream time alone, without any of that waiting.
+     */
+    private <T> T callSource(String sourceName, String operation, Callable<T> call) throws Exception {
+        CircuitBreaker breaker = getCircuitBreaker(sourceName);
+        if (!breaker.tryAcquire()) throw new SourceUnavailableException(sourceName, breaker.retryIn());
+        Bulkhead bulkhead = getBulkhead(sourceName);
+        long[] upstreamNanos = new long[1];
+        try {
+            T result = sourceMetrics.call(sourceName, operation, () -> transport.withPermit(sourceName,
+                () -> bulkhead.call(() -> {
+                    long start = System.nanoTime();
+                    long queuedBefore = StageTimer.queuedNanos();
+                    try {
+                        return call.call();
+                    } finally {
+                        upstreamNanos[0] = System.nanoTime() - start - (StageTimer.queuedNanos() - queuedBefore);
+                    }
+                })));
+            report(breaker, upstreamNanos[0], null);
+            return result;
+        } catch (Exception e) {
+            report(breaker, upstreamNanos[0], e);
+            throw e;
+        }
+    }
+
+    private void remember(String sourceName, String keyword, SearchPage result) {
+        cache.put(sourceName, keyword, result.page(), result.games(), result.hasMore());
+        // Only first pages are worth restoring on the next launch
+        if (result.page() == 1 && !result.games().isEmpty()) {
+            snapshot.recordSearch(sourceName, SearchCache.normalize(keyword), result.games());
+        }
+    }
+
+    private void refreshInBackground(GameSource source, String keyword, int page) {
+        // Joins a refresh or foreground search for the same key that is already running
+        fetchPage(source, keyword, page, RateLimiter.Priority.BACKGROUND).whenComplete((result, ex) -> {
+            // The stale entry keeps being served until the source recovers
+            if (ex != null && !(unwrap(ex) instanceof SourceUnavailableException)) {
+                System.err.println("Background refresh failed for " + source.getSourceName() + ": " + ex.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Runs a blocking task on the service's virtual-thread executor.
+     * Cancelling the returned future interrupts the task.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> callable) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task = submitTracked(() -> {
+            try {
+                result.complete(callable.call());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((v, ex) -> {
+            if (result.isCancelled()) task.cancel(true);
+        });
+        return result;
+    }
+
+    /**
+     * Loads a game's resources in the background. Concurrent calls for the same game share
+     * one request; cancelling the returned future only stops waiting for it.
+     */
+    public CompletableFuture<List<Resource>> getDownloadsAsync(Game game) {
+        return getDownloadsAsync(game, RateLimiter.Priority.INTERACTIVE);
+    }
+
+    /**
+     * Like {@link #getDownloadsAsync(Game)}, queued at {@code priority} if the source is
+     * rate limited. A background load that a user starts waiting for moves up to interactive.
+     */
+    public CompletableFuture<List<Resource>> getDownloadsAsync(Game game, RateLimiter.Priority priority) {
+        List<Resource> cached = resourceCache.get(game.source(), game.id());
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        return executeFlight(downloadFlights, game.source() + '\u0000' + game.id(), priority, () -> getDownloads(game));
+    }
+
+    private <V> CompletableFuture<V> executeFlight(SingleFlight<String, V> flights, String key,
+                                                   RateLimiter.Priority priority, Callable<V> loader) {
+        RateLimiter.Urgency urgency = flightUrgency.compute(key, (k, u) -> {
+            if (u == null) return new RateLimiter.Urgency(priority);
+            u.raise(priority);
+            return u;
+        });
+        return flights.execute(key, () -> {
+            try {
+                return RateLimiter.call(urgency, loader);
+            } finally {
+                flightUrgency.remove(key, urgency);
+            }
+        });
+    }
+
+    public ResourcePrefetcher getPrefetcher() {
+        return prefetcher;
+    }
+
+    public ResourceCache getResourceCache() {
+        return resourceCache;
+    }
+
+    public SingleFlight<String, SearchPage> getSearchFlights() {
+        return searchFlights;
+    }
+
+    public SingleFlight<String, List<Resource>> getDownloadFlights() {
+        return downloadFlights;
+    }
+
+    /**
+     * Number of tasks currently running on the service executor.
+     */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    private Future<?> submitTracked(Runnable task) {
+        return executor.submit(() -> {
+            inFlight.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    private Duration sourceTimeout(String sourceName) {
+        return sourceTimeouts.getOrDefault(sourceName, defaultSourceTimeout);
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
     }
 
     public List<Resource> getDownloads(Game game) throws Exception {
@@ -66,13 +790,21 @@ public class AggregatedService {
         
         for (GameSource s : sources) {
             if (s.getSourceName().equals(game.source())) {
-                return s.getDownloads(game.id());
+                // Nothing goes upstream, so there is nothing to guard or measure
+                if (s.resolvesDownloadsLocally()) return s.getDownloads(game.id());
+                List<Resource> resources = callSource(s.getSourceName(), "resources", () -> s.getDownloads(game.id()));
+                resourceCache.put(game.source(), game.id(), resources);
+                snapshot.recordResources(game.source(), game.id(), resources);
+                return resources;
             }
         }
         throw new Exception("Source not found: " + game.source());
     }
     
     public void shutdown() {
+        stopCatalogSync();
         executor.shutdown();
+        catalogStore.close();
+        snapshot.close();
     }
 }
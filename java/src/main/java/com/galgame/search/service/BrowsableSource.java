@@ -0,0 +1,27 @@
+package com.galgame.search.service;
+
+import com.galgame.search.model.Game;
+
+import java.util.List;
+
+/**
+ * A source whose whole catalogue can be paged through, most recently updated first.
+ */
+public interface BrowsableSource extends GameSource {
+
+    /**
+     * A game as the catalogue lists it. {@code updatedAt} is the source's stamp of the game's
+     * last resource update, compared only for equality, or null if the source gives none.
+     */
+    record Listing(Game game, String updatedAt) {}
+
+    /**
+     * One page (1-based) of the catalogue.
+     */
+    record CatalogPage(List<Listing> listings, int page, boolean hasMore) {}
+
+    /**
+     * One page (1-based) of the catalogue, most recently updated first.
+     */
+    CatalogPage browsePage(int page) throws Exception;
+}
@@ -0,0 +1,190 @@
+package com.galgame.search.service;
+
+import com.galgame.search.metrics.StageTimer;
+import com.galgame.search.net.RateLimiter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded concurrency for the calls of one source, so a slow upstream can only tie up its
+ * own slots and sockets. Calls beyond the limit wait in a bounded queue; when that is full
+ * they are refused with {@link BulkheadFullException}. Like the rate limiter, the queue
+ * serves interactive calls before background ones (by {@link RateLimiter#current()}), and
+ * in arrival order within a priority.
+ *
+ * <p>The limit adapts AIMD-style between {@code minLimit} and {@code maxLimit}: a call that
+ * answers within the target latency while the slots are well used raises it by
+ * {@code 1/limit} (about one per full round of calls); a timeout, connection failure,
+ * server error or an answer slower than the target cuts it by 30%. Rate limiter waits inside
+ * a call are not held against the source.
+ */
+public class Bulkhead {
+
+    private static final double BACKOFF = 0.7;
+    // Waiters that are not first re-check this often, in case their urgency was raised
+    private static final long RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private record Waiter(RateLimiter.Urgency urgency, long seq) {}
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueued;
+    private final long targetNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private final List<Waiter> waiters = new ArrayList<>();
+    private double limit;
+    private int inFlight;
+    private long seq;
+    private long rejected;
+    private long completed;
+
+    public Bulkhead(int initialLimit, int minLimit, int maxLimit, int maxQueued, Duration targetLatency) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.maxQueued = maxQueued;
+        this.targetNanos = targetLatency.toNanos();
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /**
+     * Runs {@code call} once a slot is free. Time spent waiting is reported to the current
+     * {@link StageTimer} as {@link StageTimer.Stage#QUEUE}.
+     */
+    public <T> T call(Callable<T> call) throws Exception {
+        long waitStart = System.nanoTime();
+        acquire(RateLimiter.current());
+        long start = System.nanoTime();
+        StageTimer timer = StageTimer.current();
+        if (timer != null) timer.add(StageTimer.Stage.QUEUE, start - waitStart);
+        long queuedBefore = StageTimer.queuedNanos();
+        Throwable failure = null;
+        try {
+            return call.call();
+        } catch (Exception e) {
+            failure = e;
+            throw e;
+        } finally {
+            release(System.nanoTime() - start - (StageTimer.queuedNanos() - queuedBefore), failure);
+        }
+    }
+
+    private void acquire(RateLimiter.Urgency urgency) throws InterruptedException, BulkheadFullException {
+        lock.lock();
+        try {
+            if (waiters.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                return;
+            }
+            if (waiters.size() >= maxQueued) {
+                rejected++;
+                throw new BulkheadFullException(inFlight, waiters.size());
+            }
+            Waiter me = new Waiter(urgency, seq++);
+            waiters.add(me);
+            try {
+                while (first() != me || inFlight >= (int) limit) {
+                    if (first() == me) slotFreed.await();
+                    else slotFreed.awaitNanos(RECHECK_NANOS);
+                }
+            } finally {
+                waiters.remove(me);
+                // The next waiter may be able to go now, or now be first
+                slotFreed.signalAll();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long elapsedNanos, Throwable failure) {
+        lock.lock();
+        try {
+            boolean busy = inFlight >= limit / 2;
+            inFlight--;
+            completed++;
+            if (overloaded(elapsedNanos, failure)) {
+                limit = Math.max(minLimit, limit * BACKOFF);
+            } else if (failure == null && busy) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            if (!waiters.isEmpty()) slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Waiter first() {
+        Waiter best = null;
+        for (Waiter w : waiters) {
+            if (best == null) {
+                best = w;
+                continue;
+            }
+            int byPriority = Integer.compare(w.urgency().priority().ordinal(), best.urgency().priority().ordinal());
+            if (byPriority < 0 || (byPriority == 0 && w.seq() < best.seq())) best = w;
+        }
+        return best;
+    }
+
+    private boolean overloaded(long elapsedNanos, Throwable failure) {
+        if (failure == null) return elapsedNanos > targetNanos;
+        return switch (SourceMetrics.cause(failure)) {
+            case "timeout", "connect", "io", "http_5xx" -> true;
+            default -> false;
+        };
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlightCount() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueuedCount() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRejectedCount() {
+        lock.lock();
+        try {
+            return rejected;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getCompletedCount() {
+        lock.lock();
+        try {
+            return completed;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
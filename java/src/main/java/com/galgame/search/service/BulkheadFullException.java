@@ -0,0 +1,16 @@
+package com.galgame.search.service;
+
+import java.io.IOException;
+
+/**
+ * A source call was refused because the source's {@link Bulkhead} had no slot free and its
+ * queue was full.
+ */
+public class BulkheadFullException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BulkheadFullException(int inFlight, int queued) {
+        super("Too many requests in progress (" + inFlight + " running, " + queued + " queued)");
+    }
+}
@@ -0,0 +1,292 @@
+package com.galgame.search.service;
+
+import com.galgame.search.index.CatalogIndex;
+import com.galgame.search.model.Game;
+import com.galgame.search.model.Resource;
+import com.galgame.search.net.RateLimiter;
+import com.galgame.search.store.CatalogStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Background job that keeps a {@link CatalogStore} in step with a browsable source.
+ * Each run pages through the catalogue newest-first and stops at the newest game the previous
+ * run saw (or after a stretch of games that are stored unchanged). A game counts as changed
+ * when its listing or the source's update stamp differs from the stored one. New and changed games are
+ * written together with their resource lists, which are fetched with bounded concurrency,
+ * in batches of a few pages. Every batch also stores a checkpoint, so an interrupted run
+ * (including the first, full crawl, which is spread over several runs) resumes where it stopped.
+ * After a run that wrote anything, the local search index is rebuilt from the store.
+ *
+ * <p>Every call into the source goes through a {@link Gateway} at background priority, so
+ * the crawl is subject to the same breaker, rate limit and bulkhead as everything else and
+ * leaves a source alone while it is failing.
+ */
+public class CatalogSync {
+
+    /**
+     * Runs a call into the source, e.g. through the service's breaker, rate limiter and bulkhead.
+     */
+    @FunctionalInterface
+    public interface Gateway {
+        <T> T call(String sourceName, String operation, Callable<T> call) throws Exception;
+    }
+
+    /**
+     * Counters since startup plus figures of the last run. {@code lagMillis} is the time
+     * since the store was last fully caught up with the source.
+     */
+    public record Stats(long runs, long failedRuns, long pagesFetched, long gamesScanned, long gamesWritten,
+                        long resourceListsWritten, long lastRunMillis, double lastRunGamesPerSecond,
+                        long lastCompletedAtMillis, boolean running) {
+
+        public long lagMillis() {
+            return lastCompletedAtMillis == 0 ? -1 : System.currentTimeMillis() - lastCompletedAtMillis;
+        }
+    }
+
+    // Pages written per batch (one fsync each)
+    private static final int BATCH_PAGES = 4;
+    // Keeps one run, and its load on the source, bounded; a full crawl continues next run
+    private static final int MAX_PAGES_PER_RUN = 200;
+    // This many stored, unchanged games in a row means everything older is known as well
+    private static final int STOP_AFTER_UNCHANGED = 30;
+
+    private final BrowsableSource source;
+    private final Gateway gateway;
+    private final CatalogStore store;
+    private final Path indexFile;
+    private final Executor executor;
+    private final int maxConcurrentResourceLoads;
+    private final Consumer<CatalogIndex> onIndexUpdated;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    // Users searching and clicking go ahead of the crawl at the source's rate limiter
+    private static final RateLimiter.Urgency BACKGROUND = new RateLimiter.Urgency(RateLimiter.Priority.BACKGROUND);
+    private ScheduledExecutorService scheduler;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong failedRuns = new AtomicLong();
+    private final AtomicLong pagesFetched = new AtomicLong();
+    private final AtomicLong gamesScanned = new AtomicLong();
+    private final AtomicLong gamesWritten = new AtomicLong();
+    private final AtomicLong resourceListsWritten = new AtomicLong();
+    private volatile long lastRunMillis = 0;
+    private volatile double lastRunGamesPerSecond = 0;
+
+    /**
+     * @param gateway        every call into {@code source} is made through it
+     * @param indexFile      where the rebuilt index is saved
+     * @param executor       runs resource loads; a virtual-thread executor is fine
+     * @param onIndexUpdated receives the rebuilt index after a run that changed the store
+     */
+    public CatalogSync(BrowsableSource source, Gateway gateway, CatalogStore store, Path indexFile, Executor executor,
+                       int maxConcurrentResourceLoads, Consumer<CatalogIndex> onIndexUpdated) {
+        this.source = source;
+        this.gateway = gateway;
+        this.store = store;
+        this.indexFile = indexFile;
+        this.executor = executor;
+        this.maxConcurrentResourceLoads = maxConcurrentResourceLoads;
+        this.onIndexUpdated = onIndexUpdated;
+    }
+
+    /**
+     * Runs a sync after {@code initialDelay} and then every {@code interval}.
+     */
+    public synchronized void schedule(Duration initialDelay, Duration interval) {
+        if (scheduler != null) return;
+        // Runs block on the network almost all the time, like every other source call
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("catalog-sync").factory());
+        scheduler.scheduleWithFixedDelay(this::runQuietly,
+            initialDelay.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /**
+     * Runs one sync on the calling thread. Returns false without doing anything if a run
+     * is already in progress.
+     */
+    public boolean syncOnce() throws Exception {
+        if (!running.compareAndSet(false, true)) return false;
+        long start = System.nanoTime();
+        long scannedBefore = gamesScanned.get();
+        runs.incrementAndGet();
+        try {
+            if (crawl()) rebuildIndex();
+            return true;
+        } catch (Exception e) {
+            failedRuns.incrementAndGet();
+            throw e;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            lastRunMillis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            lastRunGamesPerSecond = (gamesScanned.get() - scannedBefore) / Math.max(1e-9, nanos / 1e9);
+            running.set(false);
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(runs.get(), failedRuns.get(), pagesFetched.get(), gamesScanned.get(), gamesWritten.get(),
+            resourceListsWritten.get(), lastRunMillis, lastRunGamesPerSecond,
+            store.checkpoint().completedAtMillis(), running.get());
+    }
+
+    private void runQuietly() {
+        try {
+            syncOnce();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("Catalogue sync failed: " + e.getMessage());
+        }
+    }
+
+    // Returns whether anything was written
+    private boolean crawl() throws Exception {
+        CatalogStore.Checkpoint cp = store.checkpoint();
+        String stopAt = cp.stopAtId();
+        String runNewest = cp.inProgress() ? cp.runNewestId() : null;
+        int page = cp.inProgress() ? cp.nextPage() : 1;
+
+        Map<String, CatalogStore.Entry> pending = new LinkedHashMap<>();
+        Map<String, List<Resource>> pendingResources = new LinkedHashMap<>();
+        int pagesInBatch = 0;
+        int unchangedInARow = 0;
+        boolean wroteAnything = false;
+
+        for (int fetched = 0; fetched < MAX_PAGES_PER_RUN; fetched++, page++) {
+            if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+            int current = page;
+            BrowsableSource.CatalogPage result = call("browse", () -> source.browsePage(current));
+            pagesFetched.incrementAndGet();
+            if (runNewest == null && !result.listings().isEmpty()) runNewest = result.listings().get(0).game().id();
+
+            boolean caughtUp = false;
+            List<BrowsableSource.Listing> changed = new ArrayList<>();
+            for (BrowsableSource.Listing listing : result.listings()) {
+                Game game = listing.game();
+                gamesScanned.incrementAndGet();
+                if (isStored(listing) || pending.containsKey(game.id())) {
+                    // Until the first full crawl is done, older games may still be missing
+                    if (cp.fullyCrawled() && (game.id().equals(stopAt) || ++unchangedInARow >= STOP_AFTER_UNCHANGED)) {
+                        caughtUp = true;
+                        break;
+                    }
+                    continue;
+                }
+                unchangedInARow = 0;
+                changed.add(listing);
+            }
+            loadResources(changed, pending, pendingResources);
+            pagesInBatch++;
+
+            boolean done = caughtUp || !result.hasMore();
+            if (done) {
+                // Reaching the end proves the store now holds the whole catalogue
+                boolean full = cp.fullyCrawled() || !result.hasMore();
+                String newest = runNewest != null ? runNewest : stopAt;
+                store.writeBatch(pending.values(), pendingResources,
+                    new CatalogStore.Checkpoint(newest, null, 0, System.currentTimeMillis(), full));
+                return wroteAnything || !pending.isEmpty();
+            }
+            if (pagesInBatch >= BATCH_PAGES) {
+                store.writeBatch(pending.values(), pendingResources,
+                    new CatalogStore.Checkpoint(stopAt, runNewest, page + 1, cp.completedAtMillis(), cp.fullyCrawled()));
+                wroteAnything |= !pending.isEmpty();
+                pending.clear();
+                pendingResources.clear();
+                pagesInBatch = 0;
+            }
+        }
+        // Page budget used up: save where to go on next time
+        store.writeBatch(pending.values(), pendingResources,
+            new CatalogStore.Checkpoint(stopAt, runNewest, page, cp.completedAtMillis(), cp.fullyCrawled()));
+        return wroteAnything || !pending.isEmpty();
+    }
+
+    // Whether the store already holds this listing, with the same update stamp
+    private boolean isStored(BrowsableSource.Listing listing) {
+        String id = listing.game().id();
+        return listing.game().equals(store.game(id)) && Objects.equals(listing.updatedAt(), store.updatedAt(id));
+    }
+
+    /**
+     * Fetches the resource lists of {@code listings}, at most {@code maxConcurrentResourceLoads}
+     * at a time, and moves every game whose list arrived into the pending batch. A game whose
+     * list failed is left out, so it still counts as changed on the next run and is retried.
+     */
+    private void loadResources(List<BrowsableSource.Listing> listings, Map<String, CatalogStore.Entry> pending,
+                               Map<String, List<Resource>> pendingResources)
+            throws InterruptedException, SourceUnavailableException {
+        if (listings.isEmpty()) return;
+        Semaphore permits = new Semaphore(maxConcurrentResourceLoads);
+        List<CompletableFuture<List<Resource>>> loads = new ArrayList<>(listings.size());
+        for (BrowsableSource.Listing listing : listings) {
+            Game game = listing.game();
+            permits.acquire();
+            CompletableFuture<List<Resource>> load = new CompletableFuture<>();
+            loads.add(load);
+            executor.execute(() -> {
+                try {
+                    load.complete(call("resources", () -> source.getDownloads(game.id())));
+                } catch (Throwable e) {
+                    load.completeExceptionally(e);
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+        for (int i = 0; i < listings.size(); i++) {
+            BrowsableSource.Listing listing = listings.get(i);
+            Game game = listing.game();
+            try {
+                List<Resource> list = loads.get(i).join();
+                pending.put(game.id(), new CatalogStore.Entry(game, listing.updatedAt()));
+                pendingResources.put(game.id(), list);
+                gamesWritten.incrementAndGet();
+                resourceListsWritten.incrementAndGet();
+            } catch (RuntimeException e) {
+                // The source's breaker opened: the rest of the run would only be refused as well
+                if (e.getCause() instanceof SourceUnavailableException unavailable) throw unavailable;
+                System.err.println("Catalogue sync could not load resources of " + game.id() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private <T> T call(String operation, Callable<T> call) throws Exception {
+        return RateLimiter.call(BACKGROUND, () -> gateway.call(source.getSourceName(), operation, call));
+    }
+
+    private void rebuildIndex() {
+        CatalogIndex.Builder builder = CatalogIndex.builder(source.getSourceName());
+        for (Game g : store.games()) builder.add(g);
+        CatalogIndex index = builder.complete(store.checkpoint().fullyCrawled()).build();
+        try {
+            index.save(indexFile);
+        } catch (IOException e) {
+            System.err.println("Failed to save catalogue index: " + e.getMessage());
+        }
+        onIndexUpdated.accept(index);
+    }
+}
@@ -0,0 +1,198 @@
+package com.galgame.search.service;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Failure tracking for one source. Over a window of recent calls, failures and slow calls
+ * both count against the source; once enough of them pile up the breaker opens and calls
+ * are refused without touching the network. After a cool-down a single probe call is let
+ * through (half-open): success closes the breaker, failure opens it again for twice as long.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int windowSize;
+    private final int minCalls;
+    private final double failureRateThreshold;
+    private final long slowCallNanos;
+    private final long baseOpenNanos;
+    private final long maxOpenNanos;
+    private final Consumer<CircuitBreaker> onStateChange;
+
+    // Ring of recent outcomes: true = failed or slow
+    private final boolean[] window;
+    private int next;
+    private int recorded;
+    private int bad;
+
+    private State state = State.CLOSED;
+    private long openUntilNanos;
+    private long openNanos;
+    private boolean probeInFlight;
+    private long rejected;
+    private long trips;
+
+    /**
+     * @param windowSize           number of recent calls considered
+     * @param minCalls             calls needed in the window before it can trip
+     * @param failureRateThreshold share of failed or slow calls (0..1) that trips it
+     * @param slowCall             calls taking longer than this count as failures
+     * @param openFor              first cool-down; doubled after every failed probe
+     * @param maxOpenFor           upper bound for the cool-down
+     * @param onStateChange        told after every state change, outside the lock
+     */
+    public CircuitBreaker(String name, int windowSize, int minCalls, double failureRateThreshold,
+                          Duration slowCall, Duration openFor, Duration maxOpenFor,
+                          Consumer<CircuitBreaker> onStateChange) {
+        this.name = name;
+        this.windowSize = windowSize;
+        this.minCalls = minCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = slowCall.toNanos();
+        this.baseOpenNanos = openFor.toNanos();
+        this.maxOpenNanos = maxOpenFor.toNanos();
+        this.onStateChange = onStateChange;
+        this.window = new boolean[windowSize];
+        this.openNanos = baseOpenNanos;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Whether a call may go ahead. In the half-open state only one caller gets through;
+     * it must report back with {@link #onSuccess}, {@link #onFailure}, {@link #onAbandoned}
+     * or {@link #onIgnored}.
+     */
+    public boolean tryAcquire() {
+        boolean changed = false;
+        synchronized (this) {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openUntilNanos < 0) {
+                    rejected++;
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                changed = true;
+            }
+            if (state == State.HALF_OPEN) {
+                // Only possible when another caller already holds the probe, so nothing changed
+                if (probeInFlight) {
+                    rejected++;
+                    return false;
+                }
+                probeInFlight = true;
+            }
+        }
+        if (changed) notifyChange();
+        return true;
+    }
+
+    public void onSuccess(long elapsedNanos) {
+        record(elapsedNanos > slowCallNanos);
+    }
+
+    public void onFailure() {
+        record(true);
+    }
+
+    /**
+     * The call ended without saying anything about the source's health (e.g. the user
+     * cancelled it). Frees the probe slot if this was the probe.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) probeInFlight = false;
+    }
+
+    /**
+     * The call was abandoned by its callers (cancelled or past their deadline) after running
+     * for {@code elapsedNanos}. Counts as a slow call if it had already run too long, and
+     * is ignored otherwise.
+     */
+    public void onAbandoned(long elapsedNanos) {
+        if (elapsedNanos > slowCallNanos) record(true);
+        else onIgnored();
+    }
+
+    private void record(boolean failed) {
+        boolean changed;
+        synchronized (this) {
+            State before = state;
+            switch (state) {
+                case HALF_OPEN -> {
+                    probeInFlight = false;
+                    if (failed) {
+                        openNanos = Math.min(maxOpenNanos, openNanos * 2);
+                        open();
+                    } else {
+                        close();
+                    }
+                }
+                case CLOSED -> {
+                    if (recorded == windowSize && window[next]) bad--;
+                    window[next] = failed;
+                    if (failed) bad++;
+                    next = (next + 1) % windowSize;
+                    recorded = Math.min(windowSize, recorded + 1);
+                    if (recorded >= minCalls && bad >= failureRateThreshold * recorded) {
+                        openNanos = baseOpenNanos;
+                        open();
+                    }
+                }
+                // Calls started before the breaker opened still report; they change nothing
+                case OPEN -> { }
+            }
+            changed = state != before;
+        }
+        if (changed) notifyChange();
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntilNanos = System.nanoTime() + openNanos;
+        trips++;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        openNanos = baseOpenNanos;
+        next = 0;
+        recorded = 0;
+        bad = 0;
+    }
+
+    private void notifyChange() {
+        if (onStateChange != null) onStateChange.accept(this);
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * Time until a probe is allowed, zero unless open.
+     */
+    public synchronized Duration retryIn() {
+        if (state != State.OPEN) return Duration.ZERO;
+        return Duration.ofNanos(Math.max(0, openUntilNanos - System.nanoTime()));
+    }
+
+    /**
+     * Share of failed or slow calls in the current window.
+     */
+    public synchronized double failureRate() {
+        return recorded == 0 ? 0.0 : (double) bad / recorded;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+
+    public synchronized long getTripCount() {
+        return trips;
+    }
+}
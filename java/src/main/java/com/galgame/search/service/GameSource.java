@@ -11,11 +11,26 @@ public interface GameSource {
      */
     List<Game> searchGame(String keyword) throws Exception;
 
+    /**
+     * Search one page of results (1-based). Sources without paging only have page 1.
+     */
+    default SearchPage searchPage(String keyword, int page) throws Exception {
+        if (page > 1) return new SearchPage(List.of(), page, false);
+        return new SearchPage(searchGame(keyword), 1, false);
+    }
+
     /**
      * Get download resources for a specific game ID.
      */
     List<Resource> getDownloads(String id) throws Exception;
 
+    /**
+     * Whether {@link #getDownloads} answers from data already at hand, without a network call.
+     */
+    default boolean resolvesDownloadsLocally() {
+        return false;
+    }
+
     /**
      * Get the name of this source.
      */
@@ -2,100 +2,151 @@ package com.galgame.search.service;
 
 import com.galgame.search.model.Game;
 import com.galgame.search.model.Resource;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import com.galgame.search.model.TorrentInfo;
+import com.galgame.search.net.HttpTransport;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URLEncoder;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class NyaaSource implements GameSource {
 
-    private final HttpClient client;
+    public static final String DEFAULT_BASE_URL = "https://nyaa.si/";
+
+    private static final String NYAA_NS = "https://nyaa.si/xmlns/nyaa";
+    // Nyaa lists 75 torrents per page, RSS included
+    private static final int PAGE_SIZE = 75;
+    // Each feed page is served as three pages of results, so the parse can stop a third of
+    // the way into the feed and the first results are out before the rest has arrived
+    private static final int WINDOW = 25;
+    private static final int WINDOWS_PER_PAGE = PAGE_SIZE / WINDOW;
+    private static final XMLInputFactory XML_FACTORY = XMLInputFactory.newFactory();
+
+    static {
+        XML_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        // An RSS feed has no business pulling in DTDs or external entities
+        XML_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final HttpTransport transport;
+    private final String baseUrl;
 
     public NyaaSource() {
-        this.client = HttpClient.newHttpClient();
+        this(new HttpTransport());
+    }
+
+    public NyaaSource(HttpTransport transport) {
+        this(transport, DEFAULT_BASE_URL);
+    }
+
+    /**
+     * @param baseUrl site root with trailing slash, e.g. a local stand-in server for load tests
+     */
+    public NyaaSource(HttpTransport transport, String baseUrl) {
+        this.transport = transport;
+        this.baseUrl = baseUrl;
     }
 
     @Override
     public List<Game> searchGame(String keyword) throws Exception {
+        return searchPage(keyword, 1).games();
+    }
+
+    @Override
+    public SearchPage searchPage(String keyword, int page) throws Exception {
         // Nyaa RSS: https://nyaa.si/?page=rss&c=1_2&q=KEYWORD
         // c=1_2 is Software - Games (Audio Games is 1_3, maybe we want both? or just general search)
         // Let's stick to 1_2 strictly for Galgames, or remove 'c' to search all.
         // User asked for Galgames, which are usually under Games.
         
         String encodedKeyword = URLEncoder.encode(keyword, StandardCharsets.UTF_8);
-        String rssUrl = "https://nyaa.si/?page=rss&c=1_2&q=" + encodedKeyword;
+        String rssUrl = baseUrl + "?page=rss&c=1_2&q=" + encodedKeyword;
+        int feedPage = (page - 1) / WINDOWS_PER_PAGE + 1;
+        int offset = (page - 1) % WINDOWS_PER_PAGE * WINDOW;
+        if (feedPage > 1) rssUrl += "&p=" + feedPage;
 
-        HttpRequest request = HttpRequest.newBuilder()
+        HttpRequest.Builder request = HttpRequest.newBuilder()
                 .uri(URI.create(rssUrl))
-                .GET()
-                .build();
+                .GET();
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        
-        if (response.statusCode() != 200) {
-            throw new Exception("Nyaa returned HTTP " + response.statusCode());
-        }
+        // Parse straight off the wire and stop one item past the window (enough to tell whether
+        // more follow), so the page is ready without waiting for the rest of the feed.
+        // The feed for a query rarely changes, so it is revalidated rather than downloaded again;
+        // the three windows of a feed page share that cached body but not a parsed value
+        return transport.fetchUnshared(getSourceName(), request, body -> {
+            List<Game> items = new ArrayList<>();
+            parseFeed(body, offset + WINDOW + 1, items::add);
+            List<Game> games = items.subList(Math.min(offset, items.size()), Math.min(offset + WINDOW, items.size()));
+            boolean hasMore = items.size() > offset + WINDOW || items.size() >= PAGE_SIZE;
+            return new SearchPage(List.copyOf(games), page, hasMore);
+        });
+    }
 
-        // Parse XML
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document doc = builder.parse(new java.io.ByteArrayInputStream(response.body().getBytes(StandardCharsets.UTF_8)));
-        
-        NodeList items = doc.getElementsByTagName("item");
-        List<Game> games = new ArrayList<>();
-
-        for (int i = 0; i < items.getLength(); i++) {
-            Node node = items.item(i);
-            if (node.getNodeType() == Node.ELEMENT_NODE) {
-                Element elem = (Element) node;
-                
-                String title = getTagValue("title", elem);
-                String link = getTagValue("link", elem); // This is the magnet link in Nyaa RSS usually, or .torrent?
-                // Nyaa RSS 'link' is often the magnet link? Let's verify.
-                // Actually Nyaa RSS 'link' is usually the magnet link or the torrent file link.
-                // Let's check typical Nyaa RSS. 
-                // <link>magnet:?xt=...</link> works for some RSS readers.
-                // Nyaa.si RSS <link> is often the download link (torrent file) or magnet.
-                // Wait, Nyaa.si RSS <link> element contains the MAGNET link?
-                // Actually, often it is <link>http://nyaa.si/download/...</link>
-                // And <nyaa:infoHash>...</nyaa:infoHash> is there.
-                // BUT, most RSS readers expect <link> to be the page.
-                // Let's assume 'link' is the magnet or download link.
-                // If it is a http link to .torrent, we can return that.
-                
-                // Correction: Nyaa.si RSS:
-                // <item>
-                //   <title>...</title>
-                //   <link>magnet:?xt=urn:btih:...</link>
-                //   <guid...
-                // </item>
-                // It seems default Nyaa RSS puts magnet in <link>.
-                
-                String pubDate = getTagValue("pubDate", elem);
-                String size = getTagValue("nyaa:size", elem); // Might not be available in standard javax parser without ns awareness
-                
-                // Use magnet link as ID directly
-                String id = link;
-                
-                // Description
-                String intro = "发布时间: " + pubDate;
-                
-                games.add(new Game(id, title, intro, List.of("PC"), "Nyaa"));
+    /**
+     * Streaming (StAX) parse of a Nyaa RSS feed. Each {@code <item>} is handed to {@code sink}
+     * as soon as it is complete, including the {@code nyaa:} extension fields.
+     */
+    public static void parseFeed(InputStream in, Consumer<Game> sink) throws XMLStreamException {
+        parseFeed(in, Integer.MAX_VALUE, sink);
+    }
+
+    /**
+     * Like {@link #parseFeed(InputStream, Consumer)}, but stops reading once {@code maxItems}
+     * items have been handed over. The rest of the stream is left unread.
+     */
+    public static void parseFeed(InputStream in, int maxItems, Consumer<Game> sink) throws XMLStreamException {
+        XMLStreamReader reader;
+        synchronized (XML_FACTORY) {
+            reader = XML_FACTORY.createXMLStreamReader(in);
+        }
+        try {
+            Item item = null;
+            int items = 0;
+            while (items < maxItems && reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String ns = reader.getNamespaceURI();
+                    String local = reader.getLocalName();
+                    if (item == null) {
+                        if ("item".equals(local)) item = new Item();
+                    } else if (NYAA_NS.equals(ns)) {
+                        switch (local) {
+                            case "size" -> item.size = reader.getElementText();
+                            case "infoHash" -> item.infoHash = reader.getElementText();
+                            case "seeders" -> item.seeders = parseCount(reader.getElementText());
+                            case "leechers" -> item.leechers = parseCount(reader.getElementText());
+                            case "downloads" -> item.downloads = parseCount(reader.getElementText());
+                            default -> { }
+                        }
+                    } else if (ns == null || ns.isEmpty()) {
+                        switch (local) {
+                            case "title" -> item.title = reader.getElementText();
+                            // In Nyaa's feed <link> is the .torrent download URL, usable as a resource directly
+                            case "link" -> item.link = reader.getElementText();
+                            case "pubDate" -> item.pubDate = reader.getElementText();
+                            default -> { }
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && item != null && "item".equals(reader.getLocalName())) {
+                    sink.accept(item.toGame());
+                    item = null;
+                    items++;
+                }
             }
+        } finally {
+            reader.close();
         }
-        return games;
     }
 
     @Override
@@ -104,19 +155,43 @@ public class NyaaSource implements GameSource {
         return List.of(new Resource("磁力链接 / 下载链接", id, null, "BitTorrent"));
     }
 
+    @Override
+    public boolean resolvesDownloadsLocally() {
+        return true;
+    }
+
     @Override
     public String getSourceName() {
         return "Nyaa";
     }
-    
-    private String getTagValue(String tag, Element element) {
-        NodeList nodeList = element.getElementsByTagName(tag);
-        if (nodeList != null && nodeList.getLength() > 0) {
-            Node node = nodeList.item(0);
-            if (node != null) {
-                return node.getTextContent();
-            }
+
+    private static int parseCount(String text) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // Fields of one <item> collected while it streams by
+    private static final class Item {
+        String title = "";
+        String link = "";
+        String pubDate = "";
+        String size;
+        String infoHash;
+        int seeders;
+        int leechers;
+        int downloads;
+
+        Game toGame() {
+            // Use the download link as ID directly
+            StringBuilder intro = new StringBuilder("发布时间: ").append(pubDate);
+            if (size != null) intro.append("\n大小: ").append(size);
+            intro.append("\n做种: ").append(seeders).append(" · 下载中: ").append(leechers)
+                 .append(" · 完成: ").append(downloads);
+            TorrentInfo torrent = new TorrentInfo(size, infoHash, seeders, leechers, downloads);
+            return new Game(link, title, intro.toString(), List.of("PC"), "Nyaa", torrent);
         }
-        return "";
     }
 }
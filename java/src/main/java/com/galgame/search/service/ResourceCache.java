@@ -0,0 +1,83 @@
+package com.galgame.search.service;
+
+import com.galgame.search.model.Resource;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small LRU cache of resource lists keyed by source and game id, filled by interactive
+ * loads and by prefetching so the detail pane usually renders without a network wait.
+ */
+public class ResourceCache {
+
+    private record Entry(List<Resource> resources, long storedAtNanos) {}
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ResourceCache(int maxEntries, Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ResourceCache.this.maxEntries;
+            }
+        };
+    }
+
+    public List<Resource> get(String source, String gameId) {
+        String key = key(source, gameId);
+        synchronized (this) {
+            Entry e = entries.get(key);
+            if (e != null) {
+                if (System.nanoTime() - e.storedAtNanos() <= ttlNanos) {
+                    hits.incrementAndGet();
+                    return e.resources();
+                }
+                entries.remove(key);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Like {@link #get} but does not count towards the hit/miss statistics.
+     */
+    public synchronized boolean contains(String source, String gameId) {
+        Entry e = entries.get(key(source, gameId));
+        return e != null && System.nanoTime() - e.storedAtNanos() <= ttlNanos;
+    }
+
+    public void put(String source, String gameId, List<Resource> resources) {
+        Entry entry = new Entry(List.copyOf(resources), System.nanoTime());
+        synchronized (this) {
+            entries.put(key(source, gameId), entry);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private static String key(String source, String gameId) {
+        return source + '\u0000' + gameId;
+    }
+}
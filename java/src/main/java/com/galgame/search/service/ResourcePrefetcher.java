@@ -0,0 +1,133 @@
+package com.galgame.search.service;
+
+import com.galgame.search.model.Game;
+import com.galgame.search.model.Resource;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Loads resource lists in the background before the user opens them.
+ * At most {@code maxConcurrent} prefetches run at once, so interactive requests always
+ * have room. Games the selection is moving towards jump the queue. {@link #reset()}
+ * drops all queued work and stops waiting for running prefetches, e.g. when a new search starts.
+ */
+public class ResourcePrefetcher {
+
+    private static final int MAX_QUEUED = 32;
+
+    private final Function<Game, CompletableFuture<List<Resource>>> loader;
+    private final Predicate<Game> alreadyLoaded;
+    private final int maxConcurrent;
+
+    private final Deque<Game> queue = new ArrayDeque<>();
+    private final Map<String, CompletableFuture<List<Resource>>> running = new HashMap<>();
+    private int generation = 0;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param loader        starts loading a game's resources; results are expected to land in a cache
+     * @param alreadyLoaded true if a game's resources are already cached and need no prefetch
+     */
+    public ResourcePrefetcher(Function<Game, CompletableFuture<List<Resource>>> loader,
+                              Predicate<Game> alreadyLoaded, int maxConcurrent) {
+        this.loader = loader;
+        this.alreadyLoaded = alreadyLoaded;
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * Queues games behind anything already waiting (e.g. the top results of a search).
+     */
+    public synchronized void prefetch(List<Game> games) {
+        for (Game g : games) {
+            if (isPending(g)) continue;
+            if (queue.size() >= MAX_QUEUED) {
+                dropped.incrementAndGet();
+                break;
+            }
+            queue.addLast(g);
+        }
+        pump();
+    }
+
+    /**
+     * Puts a game at the front of the queue, e.g. the row the selection is moving towards.
+     */
+    public synchronized void prefetchNext(Game game) {
+        if (game == null || running.containsKey(key(game))) return;
+        queue.removeIf(g -> key(g).equals(key(game)));
+        queue.addFirst(game);
+        while (queue.size() > MAX_QUEUED) {
+            queue.removeLast();
+            dropped.incrementAndGet();
+        }
+        pump();
+    }
+
+    /**
+     * Drops queued work and detaches from running prefetches. A user who is already
+     * waiting on the same game keeps its request, since loads are shared.
+     */
+    public synchronized void reset() {
+        generation++;
+        dropped.addAndGet(queue.size());
+        queue.clear();
+        running.values().forEach(f -> f.cancel(true));
+        running.clear();
+    }
+
+    public synchronized int getQueuedCount() {
+        return queue.size();
+    }
+
+    public synchronized int getRunningCount() {
+        return running.size();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private boolean isPending(Game g) {
+        String k = key(g);
+        return running.containsKey(k) || queue.stream().anyMatch(q -> key(q).equals(k));
+    }
+
+    private void pump() {
+        while (running.size() < maxConcurrent && !queue.isEmpty()) {
+            Game game = queue.pollFirst();
+            if (alreadyLoaded.test(game)) continue;
+
+            String k = key(game);
+            int startedIn = generation;
+            CompletableFuture<List<Resource>> f = loader.apply(game);
+            running.put(k, f);
+            f.whenComplete((v, ex) -> {
+                synchronized (this) {
+                    if (startedIn != generation) return; // Dropped by reset()
+                    running.remove(k);
+                    if (ex == null) completed.incrementAndGet();
+                    pump();
+                }
+            });
+        }
+    }
+
+    private static String key(Game g) {
+        return g.source() + '\u0000' + g.id();
+    }
+}
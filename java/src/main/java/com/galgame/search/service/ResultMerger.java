@@ -0,0 +1,143 @@
+package com.galgame.search.service;
+
+import com.galgame.search.model.Game;
+import com.galgame.search.model.MergedGame;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Groups games from all sources that are the same title, without comparing pairs: every
+ * game gets a 64-bit title signature, and games are bucketed by signature (and, for torrents,
+ * by info hash) in hash maps, so merging is linear in the number of results. Catalogue entries
+ * of one source are distinct games to that source, so a row holds at most one of them per
+ * source; torrent releases of a title from the same tracker do share a row.
+ *
+ * <p>The merger is incremental, for results that arrive batch by batch. It is not thread-safe.
+ */
+public class ResultMerger {
+
+    /** Groups created by an {@link #add} call, and whether earlier groups gained members. */
+    public record Added(List<MergedGame> created, boolean grewExisting) {}
+
+    // Release-group and tag brackets; CJK corner brackets often hold the title itself and are kept
+    private static final Pattern EDGE_TAGS = Pattern.compile(
+        "^(?:\\s*[\\[(（][^\\])）]*[\\])）])+|(?:[\\[(（][^\\])）]*[\\])）]\\s*)+$");
+    private static final Pattern TAG = Pattern.compile("[\\[(（]([^\\])）]*)[\\])）]");
+    // Tags that make a different product of the same title rather than another release of it
+    private static final Pattern DISTINCT_TAG = Pattern.compile(
+        "体验版|體驗版|体験版|试玩版|試玩版|画集|设定集|設定資料集|攻略|"
+            + "\\b(?:trial|demo|dlc|fd|fan ?dis[ck]|ost|soundtrack|artbook|append)\\b");
+    private static final Pattern VERSION = Pattern.compile("\\bv(?:er(?:sion)?)?\\.?\\s*\\d+(?:[._]\\d+)*[a-z]?\\b");
+    private static final Pattern EXTENSION = Pattern.compile("\\.(?:zip|rar|7z|iso|mdf|exe)$");
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Map<Long, MergedGame> bySignature = new HashMap<>();
+    private final Map<String, MergedGame> byInfoHash = new HashMap<>();
+
+    /**
+     * Merges a whole list at once, keeping the order of first appearance.
+     */
+    public static List<MergedGame> merge(List<Game> games) {
+        return new ResultMerger().add(games).created();
+    }
+
+    /**
+     * Adds games to the groups seen so far. Returns the groups this call created, in order.
+     */
+    public Added add(List<Game> games) {
+        List<MergedGame> created = new ArrayList<>();
+        Set<MergedGame> createdNow = Collections.newSetFromMap(new IdentityHashMap<>());
+        boolean grew = false;
+        for (Game game : games) {
+            long signature = signature(game.name());
+            String infoHash = game.torrent() == null ? null : game.torrent().infoHash();
+            if (infoHash != null && infoHash.isEmpty()) infoHash = null;
+
+            // The same torrent is the strongest identity; otherwise the title decides
+            MergedGame group = infoHash == null ? null : byInfoHash.get(infoHash);
+            if (group == null) {
+                group = bySignature.get(signature);
+                if (group != null && game.torrent() == null && hasCatalogueEntry(group, game.source())) group = null;
+            }
+            if (group == null) {
+                group = new MergedGame(game);
+                created.add(group);
+                createdNow.add(group);
+            } else if (!group.contains(game)) {
+                group.add(game);
+                grew |= !createdNow.contains(group);
+            }
+            register(bySignature, signature, group);
+            if (infoHash != null) register(byInfoHash, infoHash, group);
+        }
+        return new Added(created, grew);
+    }
+
+    public void clear() {
+        bySignature.clear();
+        byInfoHash.clear();
+    }
+
+    private static boolean hasCatalogueEntry(MergedGame group, String source) {
+        for (Game member : group.games()) {
+            if (member.torrent() == null && member.source().equals(source)) return true;
+        }
+        return false;
+    }
+
+    private static <K> void register(Map<K, MergedGame> map, K key, MergedGame group) {
+        map.putIfAbsent(key, group);
+    }
+
+    /**
+     * Title signature: width and case folded, leading/trailing bracketed tags (except ones
+     * such as trial or DLC that name a different product), version numbers and archive
+     * extensions removed, then only letters and digits are hashed (FNV-1a), so spacing and
+     * punctuation differences do not matter.
+     */
+    public static long signature(String title) {
+        if (title == null) return FNV_OFFSET;
+        String folded = Normalizer.normalize(title, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT).trim();
+        String stripped = EXTENSION.matcher(folded).replaceAll("");
+        stripped = EDGE_TAGS.matcher(stripped).replaceAll(tags -> Matcher.quoteReplacement(distinctTags(tags.group())));
+        stripped = VERSION.matcher(stripped).replaceAll(" ");
+
+        long hash = hashLettersAndDigits(stripped);
+        // Nothing but tags: better to group by the full title than lump all such titles together
+        return hash != FNV_OFFSET ? hash : hashLettersAndDigits(folded);
+    }
+
+    // The contents of the tags in a run of edge tags that must stay part of the title
+    private static String distinctTags(String run) {
+        StringBuilder kept = new StringBuilder();
+        Matcher tag = TAG.matcher(run);
+        while (tag.find()) {
+            if (DISTINCT_TAG.matcher(tag.group(1)).find()) kept.append(' ').append(tag.group(1)).append(' ');
+        }
+        return kept.toString();
+    }
+
+    private static long hashLettersAndDigits(String s) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < s.length(); ) {
+            int cp = s.codePointAt(i);
+            i += Character.charCount(cp);
+            if (!Character.isLetterOrDigit(cp)) continue;
+            hash ^= cp;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,195 @@
+package com.galgame.search.service;
+
+import com.galgame.search.model.Game;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-memory cache of search results, keyed by source and normalized keyword.
+ * Entries expire after a per-source TTL and are evicted least-recently-used once either
+ * the entry count or the approximate byte size goes over its limit.
+ * An expired entry can still be served as stale for a grace period while the caller
+ * refreshes it in the background.
+ */
+public class SearchCache {
+
+    /** A cache hit. {@code stale} means the TTL has passed and the entry should be refreshed. */
+    public record Lookup(List<Game> games, boolean hasMore, boolean stale) {}
+
+    private record Key(String source, String keyword, int page) {}
+
+    private record Entry(List<Game> games, boolean hasMore, long storedAtNanos, long bytes) {}
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private volatile Duration defaultTtl = Duration.ofMinutes(5);
+    private volatile Duration staleWhileRevalidate = Duration.ofMinutes(30);
+    private final Map<String, Duration> ttls = new ConcurrentHashMap<>();
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public SearchCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    public void setDefaultTtl(Duration ttl) {
+        this.defaultTtl = ttl;
+    }
+
+    public void setTtl(String source, Duration ttl) {
+        ttls.put(source, ttl);
+    }
+
+    /**
+     * How long past its TTL an entry may still be served (as stale). Zero disables stale serving.
+     */
+    public void setStaleWhileRevalidate(Duration window) {
+        this.staleWhileRevalidate = window;
+    }
+
+    public Lookup get(String source, String keyword) {
+        return get(source, keyword, 1);
+    }
+
+    public Lookup get(String source, String keyword, int page) {
+        Key key = new Key(source, normalize(keyword), page);
+        long now = System.nanoTime();
+        synchronized (this) {
+            Entry e = entries.get(key);
+            if (e != null) {
+                long age = now - e.storedAtNanos();
+                long ttl = ttlFor(source).toNanos();
+                if (age <= ttl) {
+                    hits.incrementAndGet();
+                    return new Lookup(e.games(), e.hasMore(), false);
+                }
+                if (age <= ttl + staleWhileRevalidate.toNanos()) {
+                    staleHits.incrementAndGet();
+                    return new Lookup(e.games(), e.hasMore(), true);
+                }
+                remove(key);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String source, String keyword, int page, List<Game> games, boolean hasMore) {
+        put(new Key(source, normalize(keyword), page), games, hasMore, System.nanoTime());
+    }
+
+    /**
+     * Stores an entry that is already past its TTL, so the next lookup serves it as stale
+     * and triggers a refresh. Used to seed the cache from the on-disk snapshot, which only
+     * keeps first pages and does not know whether more pages exist.
+     */
+    public void putStale(String source, String keyword, List<Game> games) {
+        long storedAt = System.nanoTime() - ttlFor(source).toNanos() - 1;
+        put(new Key(source, normalize(keyword), 1), games, !games.isEmpty(), storedAt);
+    }
+
+    private void put(Key key, List<Game> games, boolean hasMore, long storedAtNanos) {
+        List<Game> copy = List.copyOf(games);
+        Entry entry = new Entry(copy, hasMore, storedAtNanos, estimateBytes(copy));
+        synchronized (this) {
+            remove(key);
+            entries.put(key, entry);
+            totalBytes += entry.bytes();
+            evictIfNeeded();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long byteSize() {
+        return totalBytes;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getStaleHitCount() {
+        return staleHits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Normalizes a keyword for use as a cache key: Unicode compatibility folding
+     * (full-width to half-width), lower case and collapsed whitespace.
+     */
+    public static String normalize(String keyword) {
+        if (keyword == null) return "";
+        String s = Normalizer.normalize(keyword, Normalizer.Form.NFKC);
+        return s.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private Duration ttlFor(String source) {
+        return ttls.getOrDefault(source, defaultTtl);
+    }
+
+    private void remove(Key key) {
+        Entry old = entries.remove(key);
+        if (old != null) totalBytes -= old.bytes();
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        // Never evict the entry that was just added (it is last in access order)
+        while ((entries.size() > maxEntries || totalBytes > maxBytes) && entries.size() > 1 && it.hasNext()) {
+            Map.Entry<Key, Entry> eldest = it.next();
+            totalBytes -= eldest.getValue().bytes();
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    // Rough heap footprint: 2 bytes per char plus fixed per-object overhead
+    static long estimateBytes(List<Game> games) {
+        long bytes = 64;
+        for (Game g : games) {
+            bytes += 64 + chars(g.id()) + chars(g.name()) + chars(g.introduction()) + chars(g.source());
+            if (g.platform() != null) {
+                for (String p : g.platform()) bytes += 24 + chars(p);
+            }
+            if (g.torrent() != null) {
+                bytes += 48 + chars(g.torrent().size()) + chars(g.torrent().infoHash());
+            }
+        }
+        return bytes;
+    }
+
+    private static long chars(String s) {
+        return s == null ? 0 : 40 + 2L * s.length();
+    }
+}
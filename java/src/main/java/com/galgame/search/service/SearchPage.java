@@ -0,0 +1,14 @@
+package com.galgame.search.service;
+
+import com.galgame.search.model.Game;
+
+import java.util.List;
+
+/**
+ * One page of a source's search results (pages are 1-based).
+ */
+public record SearchPage(
+    List<Game> games,
+    int page,
+    boolean hasMore // The source has at least one more page after this one
+) {}
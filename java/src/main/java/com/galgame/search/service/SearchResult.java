@@ -0,0 +1,34 @@
+package com.galgame.search.service;
+
+import com.galgame.search.model.Game;
+import com.galgame.search.model.MergedGame;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Combined result of a blocking search. Sources that missed their deadline are still
+ * listed in {@code sources} with {@link SourceResult.Status#TIMED_OUT}.
+ */
+public record SearchResult(
+    List<Game> games,
+    List<SourceResult> sources
+) {
+    /**
+     * The games with duplicates across (and within) sources grouped into one entry each.
+     */
+    public List<MergedGame> merged() {
+        return ResultMerger.merge(games);
+    }
+
+    public List<String> timedOutSources() {
+        return sources.stream()
+            .filter(r -> r.status() == SourceResult.Status.TIMED_OUT)
+            .map(SourceResult::source)
+            .collect(Collectors.toList());
+    }
+
+    public boolean isPartial() {
+        return sources.stream().anyMatch(r -> !r.isSuccess());
+    }
+}
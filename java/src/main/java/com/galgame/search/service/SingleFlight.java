@@ -0,0 +1,115 @@
+package com.galgame.search.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent calls for the same key into one execution ("single flight").
+ * Every caller gets its own future. Cancelling or timing out that future only detaches
+ * that caller; the shared execution is cancelled once no caller is left waiting for it.
+ * Finished executions are forgotten right away, so a failure is never handed to later callers.
+ */
+public class SingleFlight<K, V> {
+
+    private static final class Flight<V> {
+        final CompletableFuture<V> shared = new CompletableFuture<>();
+        Future<?> task;
+        int waiters;
+    }
+
+    private final Function<Runnable, Future<?>> submitter;
+    private final Map<K, Flight<V>> flights = new HashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * @param submitter runs the shared execution in the background and returns a handle
+     *                  that can interrupt it
+     */
+    public SingleFlight(Function<Runnable, Future<?>> submitter) {
+        this.submitter = submitter;
+    }
+
+    public CompletableFuture<V> execute(K key, Callable<V> loader) {
+        Flight<V> flight;
+        boolean leader = false;
+        synchronized (this) {
+            flight = flights.get(key);
+            if (flight == null) {
+                flight = new Flight<>();
+                flights.put(key, flight);
+                leader = true;
+            }
+            flight.waiters++;
+        }
+
+        if (leader) {
+            executions.incrementAndGet();
+            start(key, flight, loader);
+        } else {
+            coalesced.incrementAndGet();
+        }
+
+        Flight<V> joined = flight;
+        CompletableFuture<V> caller = new CompletableFuture<>();
+        joined.shared.whenComplete((v, ex) -> {
+            if (ex != null) caller.completeExceptionally(ex);
+            else caller.complete(v);
+        });
+        // Completing early (cancel, orTimeout, ...) means this caller no longer waits
+        caller.whenComplete((v, ex) -> {
+            if (!joined.shared.isDone()) leave(key, joined);
+        });
+        return caller;
+    }
+
+    /**
+     * Number of executions actually started.
+     */
+    public long getExecutionCount() {
+        return executions.get();
+    }
+
+    /**
+     * Number of calls that joined an execution already in flight.
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    private void start(K key, Flight<V> flight, Callable<V> loader) {
+        flight.shared.whenComplete((v, ex) -> {
+            synchronized (this) {
+                flights.remove(key, flight);
+            }
+        });
+        Future<?> task = submitter.apply(() -> {
+            try {
+                flight.shared.complete(loader.call());
+            } catch (Throwable e) {
+                flight.shared.completeExceptionally(e);
+            }
+        });
+        synchronized (this) {
+            flight.task = task;
+        }
+        // Every caller may already have left before the task handle was known
+        if (flight.shared.isCancelled()) task.cancel(true);
+    }
+
+    private void leave(K key, Flight<V> flight) {
+        Future<?> task;
+        synchronized (this) {
+            if (--flight.waiters > 0) return;
+            flights.remove(key, flight);
+            task = flight.task;
+        }
+        flight.shared.cancel(true);
+        if (task != null) task.cancel(true);
+    }
+}
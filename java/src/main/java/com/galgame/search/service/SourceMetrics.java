@@ -0,0 +1,110 @@
+package com.galgame.search.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.galgame.search.metrics.Histogram;
+import com.galgame.search.metrics.MetricsRegistry;
+import com.galgame.search.metrics.SourceCallEvent;
+import com.galgame.search.metrics.StageTimer;
+import com.galgame.search.net.HttpStatusException;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.net.http.HttpTimeoutException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Measures every call into a {@link GameSource}: total latency, the network stages the
+ * transport reports (see {@link StageTimer}) with parsing as the remainder, response size,
+ * and the outcome, with failures counted by cause. The latest error per source is kept
+ * for display. Each call is also a {@link SourceCallEvent} in flight recordings.
+ */
+public class SourceMetrics {
+
+    /** The most recent failure of a source. */
+    public record LastError(String operation, String cause, String message, long atMillis) {}
+
+    private final MetricsRegistry registry;
+    private final Map<String, LastError> lastErrors = new ConcurrentHashMap<>();
+
+    public SourceMetrics(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    public <T> T call(String source, String operation, Callable<T> call) throws Exception {
+        SourceCallEvent event = new SourceCallEvent();
+        event.begin();
+        StageTimer timer = StageTimer.begin();
+        long start = System.nanoTime();
+        String outcome = "ok";
+        try {
+            return call.call();
+        } catch (Exception e) {
+            outcome = cause(e);
+            lastErrors.put(source, new LastError(operation, outcome, String.valueOf(e.getMessage()), System.currentTimeMillis()));
+            throw e;
+        } finally {
+            timer.end();
+            long total = System.nanoTime() - start;
+            registry.counter(MetricsRegistry.name("source.calls", "source", source, "op", operation, "outcome", outcome))
+                .increment();
+            registry.histogram(MetricsRegistry.name("source.latency", "source", source, "op", operation),
+                Histogram.Unit.NANOSECONDS).record(total);
+            for (StageTimer.Stage stage : StageTimer.Stage.values()) {
+                long nanos = timer.nanos(stage);
+                if (nanos > 0) stageHistogram(source, stage.name().toLowerCase(Locale.ROOT)).record(nanos);
+            }
+            // What is left is building the request, decompressing and parsing
+            long parse = Math.max(0, total - timer.totalNanos());
+            if (outcome.equals("ok")) stageHistogram(source, "parse").record(parse);
+            if (timer.wireBytes() > 0) {
+                registry.histogram(MetricsRegistry.name("source.response.bytes", "source", source, "op", operation),
+                    Histogram.Unit.BYTES).record(timer.wireBytes());
+            }
+            if (event.shouldCommit()) {
+                event.source = source;
+                event.operation = operation;
+                event.outcome = outcome;
+                event.wireBytes = timer.wireBytes();
+                event.queue = timer.nanos(StageTimer.Stage.QUEUE);
+                event.connectTtfb = timer.nanos(StageTimer.Stage.CONNECT_TTFB);
+                event.ttfb = timer.nanos(StageTimer.Stage.TTFB);
+                event.body = timer.nanos(StageTimer.Stage.BODY);
+                event.parse = parse;
+                event.commit();
+            }
+        }
+    }
+
+    public Map<String, LastError> lastErrors() {
+        return Map.copyOf(lastErrors);
+    }
+
+    private Histogram stageHistogram(String source, String stage) {
+        return registry.histogram(MetricsRegistry.name("source.stage", "source", source, "stage", stage),
+            Histogram.Unit.NANOSECONDS);
+    }
+
+    /**
+     * Short failure category for counters, e.g. {@code timeout}, {@code http_5xx}, {@code parse}
+     * or {@code rejected} (no room in the source's bulkhead).
+     */
+    public static String cause(Throwable e) {
+        if (e instanceof BulkheadFullException) return "rejected";
+        if (e instanceof HttpStatusException h) return "http_" + h.statusCode() / 100 + "xx";
+        if (e instanceof HttpTimeoutException || e instanceof TimeoutException) return "timeout";
+        if (e instanceof UnknownHostException) return "dns";
+        if (e instanceof ConnectException) return "connect";
+        if (e instanceof CancellationException || e instanceof InterruptedException
+            || e instanceof InterruptedIOException) return "cancelled";
+        if (e instanceof JsonProcessingException || e instanceof XMLStreamException) return "parse";
+        if (e instanceof java.io.IOException) return "io";
+        return "other";
+    }
+}
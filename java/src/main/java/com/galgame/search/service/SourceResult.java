@@ -0,0 +1,30 @@
+package com.galgame.search.service;
+
+import com.galgame.search.model.Game;
+
+import java.util.List;
+
+/**
+ * Result of one source for one search, delivered as soon as that source finishes.
+ */
+public record SourceResult(
+    String source,
+    List<Game> games,
+    long latencyMillis,
+    Status status,
+    Throwable error, // null when the source answered normally
+    int page,
+    boolean hasMore // Another page can be requested from this source
+) {
+    public enum Status {
+        OK,
+        FAILED,
+        TIMED_OUT, // Missed its deadline and was cancelled; games is empty
+        CANCELLED, // The search was superseded before this source answered
+        SKIPPED // The source's circuit breaker is open; it was not asked at all
+    }
+
+    public boolean isSuccess() {
+        return status == Status.OK;
+    }
+}
@@ -0,0 +1,23 @@
+package com.galgame.search.service;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * A call was refused without contacting the source because its circuit breaker is open.
+ */
+public class SourceUnavailableException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Duration retryIn;
+
+    public SourceUnavailableException(String source, Duration retryIn) {
+        super(source + " is skipped after repeated failures; retrying in " + Math.max(1, retryIn.toSeconds()) + "s");
+        this.retryIn = retryIn;
+    }
+
+    public Duration retryIn() {
+        return retryIn;
+    }
+}
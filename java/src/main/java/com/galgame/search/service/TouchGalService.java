@@ -1,43 +1,82 @@
 package com.galgame.search.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.galgame.search.model.Game;
 import com.galgame.search.model.Resource;
+import com.galgame.search.net.HttpStatusException;
+import com.galgame.search.net.HttpTransport;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.ArrayList;
 import java.util.List;
 
-public class TouchGalService implements GameSource {
+public class TouchGalService implements BrowsableSource {
 
-    private static final String BASE_URL = "https://www.touchgal.us/api";
-    private final HttpClient client;
+    public static final String DEFAULT_BASE_URL = "https://www.touchgal.us/api";
+    private static final int PAGE_SIZE = 15;
+    private final HttpTransport transport;
+    private final String baseUrl;
     private final ObjectMapper mapper;
+    private final ObjectReader resourceReader;
 
     public TouchGalService() {
-        this.client = HttpClient.newHttpClient();
+        this(new HttpTransport());
+    }
+
+    public TouchGalService(HttpTransport transport) {
+        this(transport, DEFAULT_BASE_URL);
+    }
+
+    /**
+     * @param baseUrl API root without trailing slash, e.g. a local stand-in server for load tests
+     */
+    public TouchGalService(HttpTransport transport, String baseUrl) {
+        this.transport = transport;
+        this.baseUrl = baseUrl;
         this.mapper = new ObjectMapper();
+        this.resourceReader = mapper.readerFor(Resource.class);
     }
 
     @Override
     public List<Game> searchGame(String keyword) throws Exception {
+        return searchPage(keyword, 1).games();
+    }
+
+    @Override
+    public SearchPage searchPage(String keyword, int page) throws Exception {
+        return query(List.of(new SearchCriteria("keyword", keyword)), page, null);
+    }
+
+    @Override
+    public CatalogPage browsePage(int page) throws Exception {
+        List<String> updateTimes = new ArrayList<>();
+        SearchPage result = query(List.of(), page, updateTimes);
+        List<Listing> listings = new ArrayList<>(result.games().size());
+        for (int i = 0; i < result.games().size(); i++) {
+            listings.add(new Listing(result.games().get(i), updateTimes.get(i)));
+        }
+        return new CatalogPage(listings, page, result.hasMore());
+    }
+
+    // updateTimes, if not null, receives each game's resource update time in result order
+    private SearchPage query(List<SearchCriteria> criteria, int page, List<String> updateTimes) throws Exception {
         // Construct JSON payload manually or via object to match Python's:
         // {"queryString": "[{\"type\":\"keyword\",\"name\":\"KEYWORD\"}]", "limit": 15, "page": 1, ...}
         
         // Note: The Python code double-serializes queryString inside the JSON.
-        String innerQuery = mapper.writeValueAsString(List.of(
-            new SearchCriteria("keyword", keyword)
-        ));
+        String innerQuery = mapper.writeValueAsString(criteria);
 
         var payloadNode = mapper.createObjectNode();
         payloadNode.put("queryString", innerQuery);
-        payloadNode.put("limit", 15);
-        payloadNode.put("page", 1);
+        payloadNode.put("limit", PAGE_SIZE);
+        payloadNode.put("page", page);
         payloadNode.put("selectedType", "all");
         payloadNode.put("selectedLanguage", "all");
         payloadNode.put("selectedPlatform", "all");
@@ -55,65 +94,119 @@ public class TouchGalService implements GameSource {
 
         String jsonPayload = mapper.writeValueAsString(payloadNode);
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(BASE_URL + "/search"))
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/search"))
                 .header("Content-Type", "application/json")
                 // Cookie: "kun-patch-setting-store|state|data|kunNsfwEnable": "all"
                 // Browsers/Servers can be picky about cookie chars like '|'. 
                 // However, standard HttpClient should handle it or we might need to encode.
                 // The python request sends it raw. Let's try raw.
                 .header("Cookie", "kun-patch-setting-store|state|data|kunNsfwEnable=all") 
-                .POST(HttpRequest.BodyPublishers.ofString(jsonPayload))
-                .build();
+                .POST(HttpRequest.BodyPublishers.ofString(jsonPayload));
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        
-        if (response.statusCode() != 200) {
-            throw new IOException("API Error: HTTP " + response.statusCode());
+        HttpResponse<InputStream> response = transport.send(getSourceName(), request);
+
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != 200) {
+                throw new HttpStatusException("API Error: HTTP " + response.statusCode(), response.statusCode());
+            }
+            return parseSearchResponse(body, page, updateTimes);
         }
+    }
 
-        JsonNode root = mapper.readTree(response.body());
-        // Python: return data.get("galgames", [])
-        JsonNode galgamesNode = root.get("galgames");
-        
+    /**
+     * Decodes a /search response token by token, straight into {@link Game}s.
+     * Python: return data.get("galgames", [])
+     */
+    public SearchPage parseSearchResponse(InputStream body, int page) throws IOException {
+        return parseSearchResponse(body, page, null);
+    }
+
+    private SearchPage parseSearchResponse(InputStream body, int page, List<String> updateTimes) throws IOException {
         List<Game> games = new ArrayList<>();
-        if (galgamesNode.isArray()) {
-            for (JsonNode node : galgamesNode) {
-                // Parse Game from node
-                // id, name, introduction, platform (array)
-                String id = node.path("id").asText();
-                String name = node.path("name").asText();
-                String introduction = node.path("introduction").asText();
-                
-                List<String> platforms = new ArrayList<>();
-                node.path("platform").forEach(p -> platforms.add(p.asText()));
-                
-                games.add(new Game(id, name, introduction, platforms, "TouchGal"));
+        long total = -1;
+        try (JsonParser p = mapper.getFactory().createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("API Error: unexpected search response");
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                if ("galgames".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (p.nextToken() == JsonToken.START_OBJECT) {
+                        games.add(readGame(p, updateTimes));
+                    }
+                } else if ("total".equals(field) && value.isNumeric()) {
+                    total = p.getLongValue();
+                } else {
+                    p.skipChildren();
+                }
             }
         }
-        return games;
+        // Without a total, a full page is the only hint that another one exists
+        boolean hasMore = total >= 0 ? (long) page * PAGE_SIZE < total : games.size() >= PAGE_SIZE;
+        return new SearchPage(games, page, hasMore);
+    }
+
+    // Reads one game object; the parser is on its START_OBJECT and is left on its END_OBJECT
+    private static Game readGame(JsonParser p, List<String> updateTimes) throws IOException {
+        // id, name, introduction, platform (array)
+        String id = "";
+        String name = "";
+        String introduction = "";
+        String updatedAt = null;
+        List<String> platforms = new ArrayList<>();
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            switch (field) {
+                case "id" -> id = p.getValueAsString("");
+                case "name" -> name = p.getValueAsString("");
+                case "introduction" -> introduction = p.getValueAsString("");
+                case "resourceUpdateTime" -> updatedAt = p.getValueAsString(null);
+                case "platform" -> {
+                    if (value == JsonToken.START_ARRAY) {
+                        while (p.nextToken() != JsonToken.END_ARRAY) {
+                            if (p.currentToken().isScalarValue()) platforms.add(p.getValueAsString(""));
+                            else p.skipChildren();
+                        }
+                    }
+                }
+                default -> p.skipChildren();
+            }
+        }
+        if (updateTimes != null) updateTimes.add(updatedAt);
+        return new Game(id, name, introduction, platforms, "TouchGal");
     }
 
     @Override
     public List<Resource> getDownloads(String patchId) throws Exception {
         // GET /patch/resource?patchId=...
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(BASE_URL + "/patch/resource?patchId=" + patchId))
-                .GET()
-                .build();
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/patch/resource?patchId=" + patchId))
+                .GET();
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        
-        if (response.statusCode() != 200) {
-            throw new IOException("API Error: HTTP " + response.statusCode());
-        }
+        // Resource lists change rarely; a 304 reuses the cached list
+        return transport.fetch(getSourceName(), request, body -> List.copyOf(parseResourceResponse(body)));
+    }
 
-        JsonNode root = mapper.readTree(response.body());
+    /**
+     * Decodes a /patch/resource response element by element with the shared {@link ObjectReader}.
+     */
+    public List<Resource> parseResourceResponse(InputStream body) throws IOException {
         List<Resource> resources = new ArrayList<>();
-        
-        if (root.isArray()) {
-            for (JsonNode node : root) {
-                resources.add(mapper.treeToValue(node, Resource.class));
+        try (JsonParser p = mapper.getFactory().createParser(body)) {
+            if (p.nextToken() != JsonToken.START_ARRAY) {
+                return resources;
+            }
+            JsonToken t;
+            while ((t = p.nextToken()) != null && t != JsonToken.END_ARRAY) {
+                if (t == JsonToken.START_OBJECT) {
+                    resources.add(resourceReader.readValue(p));
+                } else {
+                    p.skipChildren();
+                }
             }
         }
         return resources;
@@ -0,0 +1,305 @@
+package com.galgame.search.store;
+
+import com.galgame.search.model.Game;
+import com.galgame.search.model.Resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent copy of a source's catalogue (games and their resource lists), filled by the
+ * background sync. Uses the same append-only record log as {@link SnapshotStore}; a batch
+ * of records is appended with one write and one fsync, together with the sync checkpoint,
+ * so a crash never loses more than the batch in progress. Superseded records are dropped
+ * by compaction once they make up most of the file.
+ *
+ * <p>File format: {@code int magic "GSCT", int version}, then framed records (see
+ * {@link RecordCodec}) of type game (game + str updatedAt), resources (str gameId + list) or
+ * checkpoint. Version 2 added {@code updatedAt}; version 1 files are still read and rewritten.
+ */
+public class CatalogStore {
+
+    /**
+     * A game as synced, with the source's stamp of its last update (null if unknown), which
+     * tells the next sync whether the game's resources changed.
+     */
+    public record Entry(Game game, String updatedAt) {}
+
+    /**
+     * Where the sync stands.
+     *
+     * @param stopAtId        newest game id seen by the last completed sync; the next sync stops there
+     * @param runNewestId     newest game id of the sync in progress, or null
+     * @param nextPage        page to resume the sync in progress at, or 0 if none is in progress
+     * @param completedAtMillis when the last sync completed, or 0
+     * @param fullyCrawled    whether a sync has ever reached the end of the catalogue
+     */
+    public record Checkpoint(String stopAtId, String runNewestId, int nextPage, long completedAtMillis,
+                             boolean fullyCrawled) {
+
+        public static final Checkpoint NONE = new Checkpoint(null, null, 0, 0, false);
+
+        public boolean inProgress() {
+            return nextPage > 0;
+        }
+    }
+
+    private static final int MAGIC = 0x47534354; // "GSCT"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+
+    private static final byte TYPE_GAME = 1;
+    private static final byte TYPE_RESOURCES = 2;
+    private static final byte TYPE_CHECKPOINT = 3;
+
+    // Compact once the file is this many times the size of the live records
+    private static final int COMPACT_RATIO = 3;
+    private static final long COMPACT_MIN_BYTES = 1024 * 1024;
+
+    private final Path file;
+    // Insertion order is catalogue order of first sight
+    private final LinkedHashMap<String, Game> games = new LinkedHashMap<>();
+    private final Map<String, String> updateTimes = new HashMap<>();
+    private final Map<String, List<Resource>> resources = new LinkedHashMap<>();
+    private Checkpoint checkpoint = Checkpoint.NONE;
+
+    private FileChannel appendChannel;
+    // Framed size of the latest record per game / resource list, i.e. of a compacted file
+    private final Map<String, Integer> liveRecordBytes = new HashMap<>();
+    private long liveBytes = HEADER_SIZE;
+
+    public CatalogStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads the store into memory. A missing file is an empty store; a torn tail is dropped.
+     */
+    public synchronized void load() throws IOException {
+        if (!Files.exists(file)) return;
+        boolean clean;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_SIZE) {
+                clean = false;
+            } else {
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                int magic = buf.getInt();
+                int version = buf.getInt();
+                if (magic != MAGIC || version < 1 || version > VERSION) {
+                    System.err.println("Ignoring catalogue store in unknown format: " + file);
+                    clean = false;
+                } else {
+                    // Older versions are rewritten in the current format
+                    clean = RecordCodec.readRecords(buf, (type, savedAt, payload) -> apply(type, payload, version))
+                        && version == VERSION;
+                }
+            }
+        }
+        // Rewrite so that appends never land behind a torn record
+        if (!clean) compact();
+    }
+
+    private void apply(byte type, ByteBuffer payload, int version) {
+        int recordBytes = RecordCodec.RECORD_HEADER_SIZE + payload.remaining();
+        if (type == TYPE_GAME) {
+            Game g = RecordCodec.readGame(payload, true);
+            games.put(g.id(), g);
+            // Games synced before the stamp was kept count as changed on the next sync
+            updateTimes.put(g.id(), version >= 2 ? RecordCodec.readString(payload) : null);
+            trackLive("g" + g.id(), recordBytes);
+        } else if (type == TYPE_RESOURCES) {
+            String gameId = RecordCodec.readString(payload);
+            resources.put(gameId, List.copyOf(RecordCodec.readResources(payload)));
+            trackLive("r" + gameId, recordBytes);
+        } else if (type == TYPE_CHECKPOINT) {
+            checkpoint = decodeCheckpoint(payload);
+        }
+    }
+
+    public synchronized Game game(String id) {
+        return games.get(id);
+    }
+
+    /**
+     * The source's update stamp stored with a game, or null if none was.
+     */
+    public synchronized String updatedAt(String id) {
+        return updateTimes.get(id);
+    }
+
+    public synchronized List<Game> games() {
+        return new ArrayList<>(games.values());
+    }
+
+    public synchronized int gameCount() {
+        return games.size();
+    }
+
+    /**
+     * The stored resource list for a game, or null if none was synced.
+     */
+    public synchronized List<Resource> resources(String gameId) {
+        return resources.get(gameId);
+    }
+
+    public synchronized Checkpoint checkpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Appends new or changed games, their resource lists and the checkpoint reached after
+     * them as one durable write.
+     */
+    public synchronized void writeBatch(Collection<Entry> changed, Map<String, List<Resource>> resourceLists,
+                                        Checkpoint reached) throws IOException {
+        long now = System.currentTimeMillis();
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        for (Entry e : changed) {
+            byte[] record = toArray(RecordCodec.frame(TYPE_GAME, now, encodeGame(e.game(), e.updatedAt())));
+            batch.write(record);
+            sizes.put("g" + e.game().id(), record.length);
+        }
+        for (Map.Entry<String, List<Resource>> e : resourceLists.entrySet()) {
+            byte[] record = toArray(RecordCodec.frame(TYPE_RESOURCES, now, encodeResources(e.getKey(), e.getValue())));
+            batch.write(record);
+            sizes.put("r" + e.getKey(), record.length);
+        }
+        batch.write(toArray(RecordCodec.frame(TYPE_CHECKPOINT, now, encodeCheckpoint(reached))));
+
+        if (appendChannel == null) openAppendChannel();
+        ByteBuffer buf = ByteBuffer.wrap(batch.toByteArray());
+        while (buf.hasRemaining()) appendChannel.write(buf);
+        appendChannel.force(false);
+
+        for (Entry e : changed) {
+            games.put(e.game().id(), e.game());
+            updateTimes.put(e.game().id(), e.updatedAt());
+        }
+        for (Map.Entry<String, List<Resource>> e : resourceLists.entrySet()) {
+            resources.put(e.getKey(), List.copyOf(e.getValue()));
+        }
+        checkpoint = reached;
+        sizes.forEach(this::trackLive);
+
+        long size = appendChannel.size();
+        if (size > COMPACT_MIN_BYTES && size > liveBytes * COMPACT_RATIO) compact();
+    }
+
+    public synchronized void close() {
+        closeAppendChannel();
+    }
+
+    private void openAppendChannel() throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        appendChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (appendChannel.size() == 0) {
+            appendChannel.write(RecordCodec.header(MAGIC, VERSION));
+        }
+    }
+
+    private void closeAppendChannel() {
+        if (appendChannel == null) return;
+        try {
+            appendChannel.close();
+        } catch (IOException ignored) {
+        }
+        appendChannel = null;
+    }
+
+    private void compact() throws IOException {
+        closeAppendChannel();
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        long now = System.currentTimeMillis();
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(RecordCodec.header(MAGIC, VERSION));
+            for (Game g : games.values()) {
+                out.write(RecordCodec.frame(TYPE_GAME, now, encodeGame(g, updateTimes.get(g.id()))));
+            }
+            for (Map.Entry<String, List<Resource>> e : resources.entrySet()) {
+                out.write(RecordCodec.frame(TYPE_RESOURCES, now, encodeResources(e.getKey(), e.getValue())));
+            }
+            out.write(RecordCodec.frame(TYPE_CHECKPOINT, now, encodeCheckpoint(checkpoint)));
+            out.force(false);
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Windows keeps the mapped file locked for a while; retry on a later batch
+            Files.deleteIfExists(tmp);
+            System.err.println("Catalogue compaction deferred: " + e.getMessage());
+        }
+    }
+
+    private void trackLive(String key, int recordBytes) {
+        Integer old = liveRecordBytes.put(key, recordBytes);
+        liveBytes += recordBytes - (old == null ? 0 : old);
+    }
+
+    private static byte[] encodeGame(Game g, String updatedAt) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            RecordCodec.writeGame(out, g);
+            RecordCodec.writeString(out, updatedAt);
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex); // In-memory stream, cannot happen
+        }
+    }
+
+    private static byte[] encodeResources(String gameId, List<Resource> list) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            RecordCodec.writeString(out, gameId);
+            RecordCodec.writeResources(out, list);
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static byte[] encodeCheckpoint(Checkpoint c) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            RecordCodec.writeString(out, c.stopAtId());
+            RecordCodec.writeString(out, c.runNewestId());
+            out.writeInt(c.nextPage());
+            out.writeLong(c.completedAtMillis());
+            out.writeBoolean(c.fullyCrawled());
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static Checkpoint decodeCheckpoint(ByteBuffer in) {
+        return new Checkpoint(RecordCodec.readString(in), RecordCodec.readString(in), in.getInt(), in.getLong(),
+            in.get() != 0);
+    }
+
+    private static byte[] toArray(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.remaining()];
+        buf.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,182 @@
+package com.galgame.search.store;
+
+import com.galgame.search.model.Game;
+import com.galgame.search.model.Resource;
+import com.galgame.search.model.TorrentInfo;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary encoding shared by the append-only stores in this package.
+ *
+ * <p>Records are framed as {@code byte type, long savedAtMillis, int payloadLength,
+ * int crc32(payload), payload}; strings are an int byte length (-1 for null) plus UTF-8.
+ */
+final class RecordCodec {
+
+    static final int RECORD_HEADER_SIZE = 1 + 8 + 4 + 4;
+
+    // Tags for Resource fields that may be a String or a List<String>
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_STRING = 1;
+    private static final byte VALUE_LIST = 2;
+
+    /** Receives one verified record; throwing a RuntimeException marks the record as corrupt. */
+    @FunctionalInterface
+    interface RecordHandler {
+        void accept(byte type, long savedAtMillis, ByteBuffer payload);
+    }
+
+    private RecordCodec() {
+    }
+
+    static ByteBuffer header(int magic, int version) {
+        ByteBuffer header = ByteBuffer.allocate(8);
+        header.putInt(magic).putInt(version).flip();
+        return header;
+    }
+
+    static ByteBuffer frame(byte type, long savedAt, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+        buf.put(type).putLong(savedAt).putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        return buf;
+    }
+
+    /**
+     * Reads framed records until the end of {@code buf}. Returns false if reading stopped
+     * early at a torn or corrupt record (e.g. after a crash mid-write).
+     */
+    static boolean readRecords(ByteBuffer buf, RecordHandler handler) {
+        while (buf.remaining() >= RECORD_HEADER_SIZE) {
+            byte type = buf.get();
+            long savedAt = buf.getLong();
+            int length = buf.getInt();
+            int crc = buf.getInt();
+            if (length < 0 || length > buf.remaining()) return false;
+
+            ByteBuffer payload = buf.slice(buf.position(), length);
+            buf.position(buf.position() + length);
+            CRC32 check = new CRC32();
+            check.update(payload.duplicate());
+            if ((int) check.getValue() != crc) return false;
+
+            try {
+                handler.accept(type, savedAt, payload);
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+        return !buf.hasRemaining();
+    }
+
+    static void writeGame(DataOutputStream out, Game g) throws IOException {
+        writeString(out, g.id());
+        writeString(out, g.name());
+        writeString(out, g.introduction());
+        List<String> platform = g.platform() == null ? List.of() : g.platform();
+        out.writeInt(platform.size());
+        for (String p : platform) writeString(out, p);
+        writeString(out, g.source());
+        TorrentInfo t = g.torrent();
+        out.writeBoolean(t != null);
+        if (t != null) {
+            writeString(out, t.size());
+            writeString(out, t.infoHash());
+            out.writeInt(t.seeders());
+            out.writeInt(t.leechers());
+            out.writeInt(t.downloads());
+        }
+    }
+
+    /**
+     * @param withTorrent false for data written before torrent metadata was added
+     */
+    static Game readGame(ByteBuffer in, boolean withTorrent) {
+        String id = readString(in);
+        String name = readString(in);
+        String intro = readString(in);
+        int platforms = in.getInt();
+        List<String> platform = new ArrayList<>(platforms);
+        for (int j = 0; j < platforms; j++) platform.add(readString(in));
+        String gameSource = readString(in);
+        TorrentInfo torrent = null;
+        if (withTorrent && in.get() != 0) {
+            torrent = new TorrentInfo(readString(in), readString(in), in.getInt(), in.getInt(), in.getInt());
+        }
+        return new Game(id, name, intro, platform, gameSource, torrent);
+    }
+
+    static void writeResources(DataOutputStream out, List<Resource> resources) throws IOException {
+        out.writeInt(resources.size());
+        for (Resource r : resources) {
+            writeString(out, r.name());
+            writeValue(out, r.content());
+            writeString(out, r.password());
+            writeValue(out, r.type());
+        }
+    }
+
+    static List<Resource> readResources(ByteBuffer in) {
+        int count = in.getInt();
+        List<Resource> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = readString(in);
+            Object content = readValue(in);
+            String password = readString(in);
+            Object type = readValue(in);
+            list.add(new Resource(name, content, password, type));
+        }
+        return list;
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        int len = in.getInt();
+        if (len < 0) return null;
+        byte[] bytes = new byte[len];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(VALUE_NULL);
+        } else if (value instanceof List<?> list) {
+            out.writeByte(VALUE_LIST);
+            out.writeInt(list.size());
+            for (Object o : list) writeString(out, String.valueOf(o));
+        } else {
+            out.writeByte(VALUE_STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    private static Object readValue(ByteBuffer in) {
+        byte tag = in.get();
+        if (tag == VALUE_STRING) return readString(in);
+        if (tag == VALUE_LIST) {
+            int n = in.getInt();
+            List<String> list = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) list.add(readString(in));
+            return list;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,351 @@
+package com.galgame.search.store;
+
+import com.galgame.search.model.Game;
+import com.galgame.search.model.Resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Small on-disk store for the most recent search results and resource lists, so the
+ * app can show something useful right after launch and revalidate it in the background.
+ *
+ * <p>File format (all integers big-endian):
+ * <pre>
+ * header : int magic "GSNP", int version
+ * record : byte type, long savedAtMillis, int payloadLength, int crc32(payload), payload
+ * </pre>
+ * Version 2 added torrent metadata to each saved game; version 1 files are still read.
+ * Records are only ever appended; a later record for the same key replaces an earlier one.
+ * The entry counts are capped as entries are recorded, evicting the oldest; their records
+ * stay in the file until the next compaction, and a load applies the same caps.
+ * The file is read through a memory mapping at startup. A torn or corrupt tail (e.g. after a
+ * crash mid-write) ends the read at the last good record. Once the file grows past its size
+ * cap it is compacted: only the live entries are rewritten into a fresh file, after evicting
+ * the oldest ones until the rest fill at most three quarters of the cap.
+ */
+public class SnapshotStore {
+
+    private static final int MAGIC = 0x47534E50; // "GSNP"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+
+    private static final byte TYPE_SEARCH = 1;
+    private static final byte TYPE_RESOURCES = 2;
+
+    // Compaction leaves this share of the size cap free for appends; without headroom, live
+    // entries close to the cap would have every append rewrite the whole file
+    private static final double COMPACTED_FILL = 0.75;
+
+    public record SearchEntry(String source, String keyword, long savedAtMillis, List<Game> games) {}
+
+    private record ResourceEntry(String source, String gameId, long savedAtMillis, List<Resource> resources) {}
+
+    private final Path file;
+    private final int maxSearches;
+    private final int maxResourceLists;
+    private final long maxFileBytes;
+
+    // Oldest first; re-recording a key moves it to the end
+    private final LinkedHashMap<String, SearchEntry> searches = new LinkedHashMap<>();
+    private final LinkedHashMap<String, ResourceEntry> resources = new LinkedHashMap<>();
+
+    private FileChannel appendChannel;
+    // Set while the file on disk is in another format and must not be appended to
+    private boolean fileNeedsRewrite = false;
+
+    public SnapshotStore(Path file, int maxSearches, int maxResourceLists, long maxFileBytes) {
+        this.file = file;
+        this.maxSearches = maxSearches;
+        this.maxResourceLists = maxResourceLists;
+        this.maxFileBytes = maxFileBytes;
+    }
+
+    /**
+     * Reads the snapshot file into memory. A missing file is not an error; a file in an
+     * unknown format is ignored and will be replaced on the next write.
+     */
+    public synchronized void load() throws IOException {
+        if (!Files.exists(file)) return;
+
+        boolean needsCompaction;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_SIZE) {
+                needsCompaction = true;
+            } else {
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                int magic = buf.getInt();
+                int version = buf.getInt();
+                if (magic != MAGIC || version < 1 || version > VERSION) {
+                    System.err.println("Ignoring snapshot in unknown format: " + file);
+                    needsCompaction = true;
+                    fileNeedsRewrite = true;
+                } else {
+                    boolean clean = readRecords(buf, version);
+                    // Older versions are rewritten in the current format
+                    needsCompaction = !clean || version != VERSION || size > maxFileBytes;
+                    fileNeedsRewrite = version != VERSION;
+                }
+            }
+        }
+        trimToLimits();
+        if (needsCompaction) compact();
+    }
+
+    /**
+     * Recent searches, newest first.
+     */
+    public synchronized List<SearchEntry> recentSearches() {
+        List<SearchEntry> list = new ArrayList<>(searches.values());
+        Collections.reverse(list);
+        return list;
+    }
+
+    /**
+     * The stored resource list for a game, or null if none was saved.
+     */
+    public synchronized List<Resource> resources(String source, String gameId) {
+        ResourceEntry e = resources.get(key(source, gameId));
+        return e == null ? null : e.resources();
+    }
+
+    public synchronized void recordSearch(String source, String keyword, List<Game> games) {
+        SearchEntry entry = new SearchEntry(source, keyword, System.currentTimeMillis(), List.copyOf(games));
+        String k = key(source, keyword);
+        searches.remove(k);
+        searches.put(k, entry);
+        trim(searches, maxSearches);
+        append(TYPE_SEARCH, entry.savedAtMillis(), encodeSearch(entry));
+    }
+
+    public synchronized void recordResources(String source, String gameId, List<Resource> list) {
+        ResourceEntry entry = new ResourceEntry(source, gameId, System.currentTimeMillis(), List.copyOf(list));
+        String k = key(source, gameId);
+        resources.remove(k);
+        resources.put(k, entry);
+        trim(resources, maxResourceLists);
+        append(TYPE_RESOURCES, entry.savedAtMillis(), encodeResources(entry));
+    }
+
+    public synchronized void close() {
+        closeAppendChannel();
+    }
+
+    // --- Reading ---
+
+    // Returns false if reading stopped early at a torn or corrupt record
+    private boolean readRecords(ByteBuffer buf, int version) {
+        return RecordCodec.readRecords(buf, (type, savedAt, payload) -> {
+            if (type == TYPE_SEARCH) {
+                SearchEntry e = decodeSearch(payload, savedAt, version);
+                String k = key(e.source(), e.keyword());
+                searches.remove(k);
+                searches.put(k, e);
+            } else if (type == TYPE_RESOURCES) {
+                ResourceEntry e = decodeResources(payload, savedAt);
+                String k = key(e.source(), e.gameId());
+                resources.remove(k);
+                resources.put(k, e);
+            }
+            // Unknown record types from newer versions are skipped
+        });
+    }
+
+    private static SearchEntry decodeSearch(ByteBuffer in, long savedAt, int version) {
+        String source = readString(in);
+        String keyword = readString(in);
+        int count = in.getInt();
+        List<Game> games = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            games.add(RecordCodec.readGame(in, version >= 2));
+        }
+        return new SearchEntry(source, keyword, savedAt, games);
+    }
+
+    private static ResourceEntry decodeResources(ByteBuffer in, long savedAt) {
+        String source = readString(in);
+        String gameId = readString(in);
+        return new ResourceEntry(source, gameId, savedAt, RecordCodec.readResources(in));
+    }
+
+    // --- Writing ---
+
+    private void append(byte type, long savedAt, byte[] payload) {
+        try {
+            if (fileNeedsRewrite) {
+                // The entry is already in memory, so the rewrite includes it
+                compact();
+                return;
+            }
+            if (appendChannel == null) openAppendChannel();
+            appendChannel.write(recordBuffer(type, savedAt, payload));
+            if (appendChannel.size() > maxFileBytes) {
+                trimToLimits();
+                compact();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to write snapshot: " + e.getMessage());
+        }
+    }
+
+    private void openAppendChannel() throws IOException {
+        Files.createDirectories(file.getParent());
+        appendChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (appendChannel.size() == 0) {
+            appendChannel.write(headerBuffer());
+        }
+    }
+
+    private void closeAppendChannel() {
+        if (appendChannel == null) return;
+        try {
+            appendChannel.close();
+        } catch (IOException ignored) {
+        }
+        appendChannel = null;
+    }
+
+    /**
+     * Rewrites the file with only the live entries, oldest first so that a later load
+     * rebuilds the same recency order.
+     */
+    private void compact() throws IOException {
+        closeAppendChannel();
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(headerBuffer());
+            for (ResourceEntry e : resources.values()) {
+                out.write(recordBuffer(TYPE_RESOURCES, e.savedAtMillis(), encodeResources(e)));
+            }
+            for (SearchEntry e : searches.values()) {
+                out.write(recordBuffer(TYPE_SEARCH, e.savedAtMillis(), encodeSearch(e)));
+            }
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            fileNeedsRewrite = false;
+        } catch (IOException e) {
+            // On Windows the old file cannot be replaced while a mapping of it is still alive;
+            // keep appending to it and compact on a later write instead.
+            Files.deleteIfExists(tmp);
+            System.err.println("Snapshot compaction deferred: " + e.getMessage());
+        }
+    }
+
+    private void trimToLimits() {
+        trim(searches, maxSearches);
+        trim(resources, maxResourceLists);
+        trimToBytes((long) (maxFileBytes * COMPACTED_FILL));
+    }
+
+    /**
+     * Evicts the oldest entries, searches and resource lists alike, until the live entries
+     * take at most {@code maxBytes} on disk.
+     */
+    private void trimToBytes(long maxBytes) {
+        long total = HEADER_SIZE;
+        LinkedHashMap<String, Integer> searchBytes = new LinkedHashMap<>();
+        for (var e : searches.entrySet()) {
+            int size = RecordCodec.RECORD_HEADER_SIZE + encodeSearch(e.getValue()).length;
+            searchBytes.put(e.getKey(), size);
+            total += size;
+        }
+        LinkedHashMap<String, Integer> resourceBytes = new LinkedHashMap<>();
+        for (var e : resources.entrySet()) {
+            int size = RecordCodec.RECORD_HEADER_SIZE + encodeResources(e.getValue()).length;
+            resourceBytes.put(e.getKey(), size);
+            total += size;
+        }
+
+        Iterator<String> s = searches.keySet().iterator();
+        Iterator<String> r = resources.keySet().iterator();
+        String nextSearch = s.hasNext() ? s.next() : null;
+        String nextResources = r.hasNext() ? r.next() : null;
+        while (total > maxBytes && (nextSearch != null || nextResources != null)) {
+            boolean searchIsOlder = nextResources == null || (nextSearch != null
+                && searches.get(nextSearch).savedAtMillis() <= resources.get(nextResources).savedAtMillis());
+            if (searchIsOlder) {
+                total -= searchBytes.get(nextSearch);
+                s.remove();
+                nextSearch = s.hasNext() ? s.next() : null;
+            } else {
+                total -= resourceBytes.get(nextResources);
+                r.remove();
+                nextResources = r.hasNext() ? r.next() : null;
+            }
+        }
+    }
+
+    private static void trim(LinkedHashMap<String, ?> map, int max) {
+        Iterator<String> it = map.keySet().iterator();
+        while (map.size() > max && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static ByteBuffer headerBuffer() {
+        return RecordCodec.header(MAGIC, VERSION);
+    }
+
+    private static ByteBuffer recordBuffer(byte type, long savedAt, byte[] payload) {
+        return RecordCodec.frame(type, savedAt, payload);
+    }
+
+    private static byte[] encodeSearch(SearchEntry e) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeString(out, e.source());
+            writeString(out, e.keyword());
+            out.writeInt(e.games().size());
+            for (Game g : e.games()) {
+                RecordCodec.writeGame(out, g);
+            }
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex); // In-memory stream, cannot happen
+        }
+    }
+
+    private static byte[] encodeResources(ResourceEntry e) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeString(out, e.source());
+            writeString(out, e.gameId());
+            RecordCodec.writeResources(out, e.resources());
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        RecordCodec.writeString(out, s);
+    }
+
+    private static String readString(ByteBuffer in) {
+        return RecordCodec.readString(in);
+    }
+
+    private static String key(String a, String b) {
+        return a + '\u0000' + b;
+    }
+}
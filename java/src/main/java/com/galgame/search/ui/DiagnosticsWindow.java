@@ -0,0 +1,142 @@
+package com.galgame.search.ui;
+
+import com.galgame.search.metrics.FlightRecording;
+import com.galgame.search.service.AggregatedService;
+import com.galgame.search.service.SourceMetrics;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextArea;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import javafx.util.Duration;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+
+/**
+ * Live view of the service metrics: per-source latency by stage, outcomes, payload sizes,
+ * cache and transport figures, and the last error of each source. Refreshed once a second
+ * while open; the metrics can be exported as JSON for comparing runs. A flight recording
+ * with the bundled event settings can be started and saved from here as well.
+ */
+class DiagnosticsWindow {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final AggregatedService service;
+    private final Stage stage = new Stage();
+    private final TextArea report = new TextArea();
+    private final Label status = new Label();
+    // Outcome of the last export or recording, kept across refreshes
+    private final Label notice = new Label();
+    private final FlightRecording recording = new FlightRecording();
+    private final Button record = new Button("开始 JFR 录制");
+    private final Timeline refresh = new Timeline(new KeyFrame(Duration.seconds(1), e -> update()));
+
+    DiagnosticsWindow(AggregatedService service, Window owner) {
+        this.service = service;
+        stage.initOwner(owner);
+        stage.setTitle("诊断");
+
+        report.setEditable(false);
+        report.setStyle("-fx-font-family: monospace; -fx-font-size: 12px;");
+
+        Button export = new Button("导出 JSON");
+        export.setOnAction(e -> export());
+        status.getStyleClass().add("sub-label");
+        notice.getStyleClass().add("sub-label");
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        record.setOnAction(e -> toggleRecording());
+        HBox bar = new HBox(10, status, notice, spacer, record, export);
+        bar.setAlignment(Pos.CENTER_LEFT);
+        bar.setPadding(new Insets(8));
+
+        BorderPane root = new BorderPane(report);
+        root.setBottom(bar);
+        Scene scene = new Scene(root, 960, 640);
+        if (owner.getScene() != null) scene.getStylesheets().addAll(owner.getScene().getStylesheets());
+        stage.setScene(scene);
+
+        refresh.setCycleCount(Timeline.INDEFINITE);
+        stage.setOnShown(e -> refresh.play());
+        stage.setOnHidden(e -> refresh.stop());
+    }
+
+    void show() {
+        update();
+        stage.show();
+        stage.toFront();
+    }
+
+    private void update() {
+        StringBuilder sb = new StringBuilder(service.getMetrics().format());
+        Map<String, SourceMetrics.LastError> errors = service.lastErrors();
+        sb.append("\nLast errors\n");
+        if (errors.isEmpty()) sb.append("  (none)\n");
+        errors.forEach((source, e) -> sb.append("  ").append(source).append(' ')
+            .append(LocalTime.ofInstant(Instant.ofEpochMilli(e.atMillis()), ZoneId.systemDefault()).format(TIME))
+            .append(' ').append(e.operation()).append(' ').append(e.cause()).append(": ").append(e.message())
+            .append('\n'));
+
+        // Keep the scroll position while the text is replaced
+        double top = report.getScrollTop();
+        report.setText(sb.toString());
+        report.setScrollTop(top);
+        status.setText("更新于 " + LocalTime.now().format(TIME) + (recording.isRunning() ? "  · JFR 录制中" : ""));
+    }
+
+    private void toggleRecording() {
+        try {
+            if (!recording.isRunning()) {
+                recording.start();
+                record.setText("停止并保存录制");
+                notice.setText("");
+                update();
+                return;
+            }
+            FileChooser chooser = new FileChooser();
+            chooser.setTitle("保存 JFR 录制");
+            chooser.setInitialFileName("galgame-" + LocalTime.now().format(DateTimeFormatter.ofPattern("HHmmss")) + ".jfr");
+            chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("JFR", "*.jfr"));
+            File file = chooser.showSaveDialog(stage);
+            // Cancelling the dialog keeps recording
+            if (file == null) return;
+            recording.stop(file.toPath());
+            record.setText("开始 JFR 录制");
+            notice.setText("录制已保存到 " + file.getName());
+        } catch (IOException | RuntimeException e) {
+            notice.setText("JFR 录制失败: " + e.getMessage());
+        }
+    }
+
+    private void export() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("导出诊断数据");
+        chooser.setInitialFileName("metrics-" + LocalTime.now().format(DateTimeFormatter.ofPattern("HHmmss")) + ".json");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("JSON", "*.json"));
+        File file = chooser.showSaveDialog(stage);
+        if (file == null) return;
+        try {
+            service.getMetrics().export(file.toPath());
+            notice.setText("已导出到 " + file.getName());
+        } catch (IOException e) {
+            notice.setText("导出失败: " + e.getMessage());
+        }
+    }
+}
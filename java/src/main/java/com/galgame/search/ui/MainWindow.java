@@ -1,44 +1,81 @@
 package com.galgame.search.ui;
 
+import com.galgame.search.metrics.Histogram;
+import com.galgame.search.metrics.MetricsRegistry;
+import com.galgame.search.metrics.RenderEvent;
 import com.galgame.search.model.Game;
+import com.galgame.search.model.MergedGame;
 import com.galgame.search.model.Resource;
 import com.galgame.search.service.AggregatedService;
+import com.galgame.search.service.SearchCache;
+import com.galgame.search.service.SourceResult;
 import com.galgame.search.service.TouchGalService;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
-import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
 import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.*;
 import javafx.scene.text.Text;
 import javafx.scene.text.TextFlow;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MainWindow extends BorderPane {
 
+    // Resources of this many top results are loaded before the user clicks them
+    private static final int PREFETCH_TOP_K = 5;
+
     private final AggregatedService service;
     private final TextField searchField;
     private final Button searchButton;
-    private final ListView<Game> resultList;
+    private final CheckBox instantSearch;
+    private final ListView<MergedGame> resultList;
+    private final ResultPager pager;
+    private final Label searchStatus;
+    private final Label sourceHealth;
     private final VBox detailContent;
+    private final ListView<Resource> resourceList;
+    private final Label resourceMessage;
     private final ToggleGroup categoryGroup;
     private String currentCategory = "游戏本体";
     private Game currentGame;
+    private int searchGeneration = 0;
+    private CompletableFuture<List<Resource>> pendingDetail;
+
+    // Search-as-you-type: wait for a pause in typing, then replace whatever search is running
+    private final PauseTransition typingPause = new PauseTransition(Duration.millis(350));
+    private CompletableFuture<Void> runningSearch;
+    private String runningKeyword = "";
 
     private final Stage stage;
+    private DiagnosticsWindow diagnostics;
+    private final Histogram renderTimes;
     private double xOffset = 0;
     private double yOffset = 0;
 
     public MainWindow(Stage stage) {
         this.stage = stage;
         this.service = new AggregatedService();
+        service.startCatalogSync();
+        this.renderTimes = service.getMetrics().histogram(MetricsRegistry.name("ui.render", "view", "resources"),
+            Histogram.Unit.NANOSECONDS);
         this.getStyleClass().add("main-window");
         
         // --- Top: Custom Title Bar ---
@@ -67,6 +104,10 @@ public class MainWindow extends BorderPane {
         searchButton = new Button("搜 索");
         searchButton.setId("search-button");
         searchButton.setPrefHeight(35);
+
+        instantSearch = new CheckBox("边输边搜");
+        instantSearch.getStyleClass().add("instant-toggle");
+        instantSearch.setSelected(true);
         
         // Spacer to push window controls to right
         Region leftSpacer = new Region();
@@ -108,7 +149,7 @@ public class MainWindow extends BorderPane {
         windowControls.getChildren().addAll(minBtn, maxBtn, closeBtn);
 
         // Layout: [Title] [Spacer] [Search Input] [Search Btn] [Spacer] [Controls]
-        topBox.getChildren().addAll(titleLabel, spacer1, searchField, searchButton, spacer2, windowControls);
+        topBox.getChildren().addAll(titleLabel, spacer1, searchField, searchButton, instantSearch, spacer2, windowControls);
         this.setTop(topBox);
 
         // --- Center: SplitPane (Results | Details) ---
@@ -121,25 +162,46 @@ public class MainWindow extends BorderPane {
         
         Label resultLabel = new Label("搜索结果");
         resultLabel.getStyleClass().add("section-header");
+
+        searchStatus = new Label();
+        searchStatus.getStyleClass().add("sub-label");
+        searchStatus.setWrapText(true);
+
+        // Sources skipped by their circuit breaker; hidden while every source is healthy
+        sourceHealth = new Label();
+        sourceHealth.getStyleClass().add("source-health");
+        sourceHealth.setWrapText(true);
+        sourceHealth.managedProperty().bind(sourceHealth.visibleProperty());
+        sourceHealth.setVisible(false);
+        service.addSourceHealthListener(() -> Platform.runLater(this::updateSourceHealth));
         
         resultList = new ListView<>();
         resultList.setId("result-list");
-        resultList.setCellFactory(lv -> new ListCell<Game>() {
+        pager = new ResultPager(service, resultList);
+        resultList.setCellFactory(lv -> new ListCell<MergedGame>() {
+            {
+                // Hovering is a good hint that the row is about to be clicked
+                setOnMouseEntered(e -> {
+                    if (getItem() != null) service.getPrefetcher().prefetchNext(getItem().primary());
+                });
+            }
+
             @Override
-            protected void updateItem(Game item, boolean empty) {
+            protected void updateItem(MergedGame item, boolean empty) {
                 super.updateItem(item, empty);
                 if (empty || item == null) {
                     setText(null);
                     setGraphic(null);
                 } else {
-                    setText(item.name() + "\n[" + item.source() + "]");
+                    setText(item.name() + "\n[" + item.sourceSummary() + "]");
                     getStyleClass().add("game-cell");
+                    pager.onRowShown(getIndex());
                 }
             }
         });
         
         VBox.setVgrow(resultList, Priority.ALWAYS);
-        leftPane.getChildren().addAll(resultLabel, resultList);
+        leftPane.getChildren().addAll(resultLabel, searchStatus, sourceHealth, resultList);
 
         // 2. Details (Right)
         VBox rightPane = new VBox(15);
@@ -173,14 +235,46 @@ public class MainWindow extends BorderPane {
         ScrollPane scrollPane = new ScrollPane();
         scrollPane.setFitToWidth(true);
         scrollPane.setId("detail-scroll");
+        // A long introduction scrolls on its own rather than squeezing out the resources
+        scrollPane.maxHeightProperty().bind(rightPane.heightProperty().multiply(0.4));
         
         detailContent = new VBox(20); // Spacing for content
         detailContent.setId("detail-content");
         
         scrollPane.setContent(detailContent);
 
-        VBox.setVgrow(scrollPane, Priority.ALWAYS);
-        rightPane.getChildren().addAll(categoryBox, scrollPane);
+        // Resources: a virtualized list, so only the visible cards exist and they are
+        // refilled while scrolling, however many mirrors a game has
+        resourceMessage = new Label();
+        resourceMessage.getStyleClass().add("sub-label");
+        resourceList = new ListView<>();
+        resourceList.setId("resource-list");
+        resourceList.setPlaceholder(resourceMessage);
+        resourceList.setFocusTraversable(false);
+        resourceList.setCellFactory(lv -> new ListCell<Resource>() {
+            private final ResourceCard card = new ResourceCard();
+
+            {
+                // Wrap to the list's width instead of widening it
+                setPrefWidth(0);
+                card.prefWidthProperty().bind(lv.widthProperty().subtract(30));
+                card.maxWidthProperty().bind(card.prefWidthProperty());
+            }
+
+            @Override
+            protected void updateItem(Resource item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setGraphic(null);
+                } else {
+                    card.show(item);
+                    setGraphic(card);
+                }
+            }
+        });
+
+        VBox.setVgrow(resourceList, Priority.ALWAYS);
+        rightPane.getChildren().addAll(categoryBox, scrollPane, resourceList);
 
         // Add to SplitPane
         splitPane.getItems().addAll(leftPane, rightPane);
@@ -189,9 +283,29 @@ public class MainWindow extends BorderPane {
         this.setCenter(splitPane); // Set SplitPane as Center
 
         // --- Event Handlers ---
-        searchButton.setOnAction(e -> doSearch());
+        searchButton.setOnAction(e -> {
+            typingPause.stop();
+            doSearch(false);
+        });
         searchField.setOnKeyPressed(e -> {
-            if (e.getCode() == KeyCode.ENTER) doSearch();
+            if (e.getCode() == KeyCode.ENTER) {
+                typingPause.stop();
+                doSearch(false);
+            }
+        });
+        searchField.textProperty().addListener((obs, oldVal, newVal) -> {
+            if (instantSearch.isSelected()) typingPause.playFromStart();
+        });
+        typingPause.setOnFinished(e -> doSearch(true));
+
+        KeyCombination showDiagnostics = new KeyCodeCombination(KeyCode.D, KeyCombination.SHORTCUT_DOWN,
+            KeyCombination.SHIFT_DOWN);
+        this.addEventFilter(KeyEvent.KEY_PRESSED, e -> {
+            if (showDiagnostics.match(e)) {
+                if (diagnostics == null) diagnostics = new DiagnosticsWindow(service, stage);
+                diagnostics.show();
+                e.consume();
+            }
         });
         
         resultList.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
@@ -199,51 +313,175 @@ public class MainWindow extends BorderPane {
                 showDetail(newVal);
             }
         });
+        // Keyboard navigation: prefetch the row after the new selection, in the direction of travel
+        resultList.getSelectionModel().selectedIndexProperty().addListener((obs, oldVal, newVal) -> {
+            int from = oldVal.intValue();
+            int to = newVal.intValue();
+            if (from < 0 || to < 0 || from == to) return;
+            int next = to + Integer.signum(to - from);
+            if (next < resultList.getItems().size()) {
+                service.getPrefetcher().prefetchNext(resultList.getItems().get(next).primary());
+            }
+        });
+
+        restoreLastSearch();
     }
 
-    private void doSearch() {
+    /**
+     * Shows the results of the last search from the previous session immediately,
+     * then asks the sources again in the background and swaps in the fresh list.
+     */
+    private void restoreLastSearch() {
+        String keyword = service.lastSearchKeyword();
+        if (keyword == null) return;
+        List<Game> saved = service.snapshotGames(keyword);
+        if (saved.isEmpty()) return;
+
+        int generation = ++searchGeneration;
+        searchField.setText(keyword);
+        typingPause.stop(); // Restoring the text is not typing
+        runningKeyword = SearchCache.normalize(keyword);
+        pager.restore(keyword, saved);
+        service.getPrefetcher().reset();
+        prefetchTopResults();
+        searchStatus.setText("上次的搜索结果 · 后台更新中...");
+
+        Map<String, List<Game>> fresh = new ConcurrentHashMap<>();
+        service.revalidate(keyword, result -> {
+            if (result.isSuccess()) fresh.put(result.source(), result.games());
+        }).whenComplete((v, ex) -> Platform.runLater(() -> {
+            if (generation != searchGeneration) return; // The user already started a new search
+            if (fresh.isEmpty()) {
+                searchStatus.setText("上次的搜索结果 · 更新失败");
+                return;
+            }
+            // Sources that failed keep their saved entries
+            List<Game> merged = new ArrayList<>();
+            for (String source : service.getSourceNames()) {
+                List<Game> games = fresh.get(source);
+                if (games != null) {
+                    merged.addAll(games);
+                } else {
+                    saved.stream().filter(g -> source.equals(g.source())).forEach(merged::add);
+                }
+            }
+            MergedGame selected = resultList.getSelectionModel().getSelectedItem();
+            if (!merged.equals(saved)) {
+                pager.restore(keyword, merged);
+                prefetchTopResults();
+                if (selected != null) {
+                    resultList.getItems().stream()
+                        .filter(row -> row.contains(selected.primary()))
+                        .findFirst()
+                        .ifPresent(row -> resultList.getSelectionModel().select(row));
+                }
+            }
+            searchStatus.setText("上次的搜索结果 · 已更新");
+        }));
+    }
+
+    /**
+     * @param incremental true when triggered by typing: no pop-up dialogs, and a query
+     *                    that is already running or already shown is not sent again
+     */
+    private void doSearch(boolean incremental) {
         String keyword = searchField.getText().trim();
-        if (keyword.isEmpty()) return;
+        String normalized = SearchCache.normalize(keyword);
+        boolean running = runningSearch != null && !runningSearch.isDone();
+
+        if (keyword.isEmpty()) {
+            if (incremental && running) {
+                runningSearch.cancel(true);
+                ++searchGeneration;
+                // Typing the same query again must start it afresh
+                runningKeyword = null;
+                searchStatus.setText("");
+                searchButton.setDisable(false);
+                searchButton.setText("搜 索");
+            }
+            return;
+        }
+        // Reuse the search in flight for the same query rather than starting it again
+        if (normalized.equals(runningKeyword) && (running || incremental)) return;
+
+        // The superseded search is cancelled down to its HTTP exchanges; any batch it still
+        // delivers is dropped by generation, so old results never overwrite newer ones
+        if (running) runningSearch.cancel(true);
+        int generation = ++searchGeneration;
+        runningKeyword = normalized;
 
         searchButton.setDisable(true);
         searchButton.setText("搜索中...");
         resultList.getItems().clear();
+        pager.reset(keyword);
         detailContent.getChildren().clear();
-
-        Task<List<Game>> task = new Task<>() {
-            @Override
-            protected List<Game> call() throws Exception {
-                return service.searchAll(keyword);
+        resourceList.getItems().clear();
+        showResourceMessage("", false);
+        service.getPrefetcher().reset(); // Prefetches for the old results are useless now
+
+        Set<String> pending = new LinkedHashSet<>(service.getSourceNames());
+        List<String> finished = new ArrayList<>();
+        updateSearchStatus(finished, pending);
+
+        runningSearch = service.searchStreaming(keyword, result -> Platform.runLater(() -> {
+            if (generation != searchGeneration) return;
+            pending.remove(result.source());
+            if (result.isSuccess()) {
+                finished.add(result.source() + " " + result.games().size() + " 条 (" + result.latencyMillis() + "ms)");
+                pager.append(result);
+                prefetchTopResults();
+            } else if (result.status() == SourceResult.Status.TIMED_OUT) {
+                finished.add(result.source() + " 超时");
+            } else if (result.status() == SourceResult.Status.SKIPPED) {
+                finished.add(result.source() + " 已跳过");
+            } else {
+                finished.add(result.source() + " 失败");
             }
-        };
-
-        task.setOnSucceeded(e -> {
-            List<Game> games = task.getValue();
-            if (games.isEmpty()) {
+            updateSearchStatus(finished, pending);
+        }));
+        runningSearch.whenComplete((v, ex) -> Platform.runLater(() -> {
+            if (generation != searchGeneration) return;
+            if (ex != null) {
+                Alert alert = new Alert(Alert.AlertType.ERROR, "请求失败: " + ex.getMessage());
+                alert.initOwner(this.getScene().getWindow());
+                alert.show();
+            } else if (resultList.getItems().isEmpty() && incremental) {
+                searchStatus.setText(searchStatus.getText() + " · 未找到相关游戏");
+            } else if (resultList.getItems().isEmpty()) {
                 Alert alert = new Alert(Alert.AlertType.INFORMATION, "未找到相关游戏");
                 alert.initOwner(this.getScene().getWindow());
                 alert.show();
-            } else {
-                resultList.getItems().addAll(games);
             }
             searchButton.setDisable(false);
             searchButton.setText("搜 索");
-        });
+        }));
+    }
 
-        task.setOnFailed(e -> {
-            Throwable ex = task.getException();
-            Alert alert = new Alert(Alert.AlertType.ERROR, "请求失败: " + ex.getMessage());
-            alert.initOwner(this.getScene().getWindow());
-            alert.show();
-            searchButton.setDisable(false);
-            searchButton.setText("搜 索");
-        });
+    private void prefetchTopResults() {
+        List<MergedGame> items = resultList.getItems();
+        service.getPrefetcher().prefetch(items.subList(0, Math.min(PREFETCH_TOP_K, items.size())).stream()
+            .map(MergedGame::primary)
+            .toList());
+    }
 
-        new Thread(task).start();
+    private void updateSourceHealth() {
+        List<String> tripped = service.getTrippedSources();
+        sourceHealth.setVisible(!tripped.isEmpty());
+        sourceHealth.setText(tripped.isEmpty() ? "" : "⚠ 连续失败，暂时跳过: " + String.join(", ", tripped));
     }
 
-    private void showDetail(Game game) {
-        if (game == null) return;
+    private void updateSearchStatus(List<String> finished, Set<String> pending) {
+        StringBuilder sb = new StringBuilder(String.join(" · ", finished));
+        if (!pending.isEmpty()) {
+            if (sb.length() > 0) sb.append(" · ");
+            sb.append("等待: ").append(String.join(", ", pending));
+        }
+        searchStatus.setText(sb.toString());
+    }
+
+    private void showDetail(MergedGame row) {
+        if (row == null) return;
+        Game game = row.primary();
         currentGame = game;
         
         // Display Info Immediately
@@ -261,106 +499,129 @@ public class MainWindow extends BorderPane {
         
         detailContent.getChildren().addAll(title, platform, intro, new Separator());
         
-        // Fetch resources asynchronously
-        Label loading = new Label("加载资源中...");
-        loading.getStyleClass().add("sub-label");
-        detailContent.getChildren().add(loading);
+        // A resource list saved by an earlier session is shown right away and revalidated below
+        List<Resource> saved = savedResources(row);
+        if (saved != null) {
+            setResources(saved);
+            updateResourcesView();
+        } else {
+            // Fetch resources asynchronously
+            resourceList.getItems().clear();
+            showResourceMessage("加载资源中...", false);
+        }
 
-        Task<List<Resource>> task = new Task<>() {
-            @Override
-            protected List<Resource> call() throws Exception {
-                return service.getDownloads(game);
+        // Clicking through the list quickly should not leave old requests running. Join the new
+        // request before leaving the old one, so re-clicking the same game keeps its request alive.
+        CompletableFuture<List<Resource>> previous = pendingDetail;
+        pendingDetail = downloadsOf(row);
+        if (previous != null) previous.cancel(true);
+        pendingDetail.whenComplete((resources, ex) -> Platform.runLater(() -> {
+            // The user may have clicked another game in the meantime
+            if (currentGame != game) return;
+            if (ex != null) {
+                if (saved != null) return; // Keep showing the saved list
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                showResourceMessage("加载资源失败: " + cause.getMessage(), true);
+                return;
             }
-        };
-
-        task.setOnSucceeded(e -> {
-            // Remove loading label (last item)
-            detailContent.getChildren().remove(loading);
             // Store resources in userData or similar, or just re-render is fine.
             // But we need to support category switching on the same set of resources.
             // So let's store them in the MainWindow state or pass them around.
             // For simplicity, let's store in a field (need to add it)
-            currentResources = task.getValue();
+            // An unchanged saved list is already on screen; anything else replaces the loading text
+            if (saved != null && resources.equals(saved)) return;
+            setResources(resources);
             updateResourcesView();
-        });
-        
-         task.setOnFailed(e -> {
-            detailContent.getChildren().remove(loading);
-            Label err = new Label("加载资源失败: " + task.getException().getMessage());
-            err.setStyle("-fx-text-fill: red;");
-            detailContent.getChildren().add(err);
-        });
-
-        new Thread(task).start();
+        }));
     }
     
     private List<Resource> currentResources = Collections.emptyList();
+    // Classified once per resource list, so a category switch only swaps the list's items
+    private ResourceListing currentListing = ResourceListing.of(List.of());
 
-    private void updateResourcesView() {
-        if (currentGame == null) return;
+    private void setResources(List<Resource> resources) {
+        currentResources = resources;
+        currentListing = ResourceListing.of(resources);
+    }
 
-        // Clear only resources ie items after the Separator
-        // The separator is the 4th item (index 3). title, plat, intro, sep.
-        // So clear from index 4.
-        if (detailContent.getChildren().size() > 4) {
-            detailContent.getChildren().remove(4, detailContent.getChildren().size());
-        }
+    // Shown by the resource list while it has no items
+    private void showResourceMessage(String text, boolean error) {
+        resourceMessage.setText(text);
+        resourceMessage.setStyle(error ? "-fx-text-fill: red;" : "");
+    }
 
-        if (currentResources == null || currentResources.isEmpty()) {
-            Label placeholder = new Label("暂无资源");
-            placeholder.getStyleClass().add("sub-label");
-            detailContent.getChildren().add(placeholder);
-            return;
+    // Resources of every source entry of the row, concatenated; null if none was saved
+    private List<Resource> savedResources(MergedGame row) {
+        List<Resource> all = null;
+        for (Game g : row.games()) {
+            List<Resource> saved = service.snapshotResources(g);
+            if (saved == null) continue;
+            if (all == null) all = new ArrayList<>();
+            all.addAll(saved);
         }
+        return all;
+    }
 
-        // Filter
-        List<Resource> filtered = currentResources.stream().filter(res -> {
-            String name = res.name() == null ? "" : res.name();
-            if ("补丁资源".equals(currentCategory)) {
-                return name.contains("补丁");
-            } else if ("存档资源".equals(currentCategory)) {
-                return name.contains("存档");
-            } else { // 游戏本体
-                return !name.contains("补丁") && !name.contains("存档");
-            }
-        }).collect(Collectors.toList());
-
-        // Sort
-        // 1. (Link & Pwd) -> Priority
-        // 2. Link -> Normal
-        // 3. No Name or Link -> Last
-        filtered.sort((r1, r2) -> {
-           int score1 = getScore(r1);
-           int score2 = getScore(r2);
-           return Integer.compare(score2, score1); // Descending
+    /**
+     * Loads the resources of every source entry of the row and concatenates them. Entries
+     * that fail are left out; the load only fails if all of them do.
+     */
+    private CompletableFuture<List<Resource>> downloadsOf(MergedGame row) {
+        List<Game> members = row.games();
+        if (members.size() == 1) return service.getDownloadsAsync(members.get(0));
+
+        List<CompletableFuture<List<Resource>>> loads = members.stream().map(service::getDownloadsAsync).toList();
+        CompletableFuture<List<Resource>> all = CompletableFuture.allOf(loads.stream()
+                .map(f -> f.exceptionally(ex -> null))
+                .toArray(CompletableFuture[]::new))
+            .thenApply(v -> {
+                List<Resource> combined = new ArrayList<>();
+                boolean anyLoaded = false;
+                for (CompletableFuture<List<Resource>> f : loads) {
+                    if (f.isCompletedExceptionally()) continue;
+                    combined.addAll(f.join());
+                    anyLoaded = true;
+                }
+                if (!anyLoaded) loads.get(0).join(); // Rethrows the first failure
+                return combined;
+            });
+        all.whenComplete((v, ex) -> {
+            if (all.isCancelled()) loads.forEach(f -> f.cancel(true));
         });
+        return all;
+    }
 
-        if (filtered.isEmpty()) {
-             Label placeholder = new Label("该分类下暂无资源");
-             placeholder.getStyleClass().add("sub-label");
-             detailContent.getChildren().add(placeholder);
-        } else {
-            for (Resource res : filtered) {
-                detailContent.getChildren().add(new ResourceCard(res));
-            }
+    private void updateResourcesView() {
+        RenderEvent event = new RenderEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int shown = renderResources();
+        renderTimes.record(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.view = "resources";
+            event.detail = currentCategory;
+            event.items = shown;
+            event.commit();
         }
     }
 
-    private int getScore(Resource r) {
-        boolean hasName = r.name() != null && !r.name().isEmpty();
-        String content = r.getContentString();
-        boolean hasLink = content != null && !content.isEmpty();
-        boolean hasPwd = r.password() != null && !r.password().isEmpty();
+    // Returns the number of resources listed
+    private int renderResources() {
+        if (currentGame == null) return 0;
 
-        if (!hasName || !hasLink) return 0;
-        
-        // Priority 1: Official TouchGal Pan
-        if (content.contains("pan.touchgal.net")) return 10;
-        
-        // Priority 2: Link + Password
-        if (hasPwd) return 2;
-        
-        // Priority 3: Link only
-        return 1;
+        if (currentResources == null || currentResources.isEmpty()) {
+            resourceList.getItems().clear();
+            showResourceMessage("暂无资源", false);
+            return 0;
+        }
+
+        List<Resource> listed = currentListing.resources(currentCategory);
+        resourceList.getItems().setAll(listed);
+        if (listed.isEmpty()) {
+            showResourceMessage("该分类下暂无资源", false);
+        } else {
+            resourceList.scrollTo(0);
+        }
+        return listed.size();
     }
 }
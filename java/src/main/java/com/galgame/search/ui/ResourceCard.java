@@ -1,65 +1,100 @@
 package com.galgame.search.ui;
 
+import com.galgame.search.metrics.ResourceCardEvent;
 import com.galgame.search.model.Resource;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.Label;
 import javafx.scene.layout.VBox;
 import javafx.scene.input.Clipboard;
 import javafx.scene.input.ClipboardContent;
 import java.awt.Desktop;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * One resource: name, its links and the password. A card can be refilled with another
+ * resource through {@link #show}, reusing its labels, so the resource list only needs as
+ * many cards as fit on screen.
+ */
 public class ResourceCard extends VBox {
 
-    public ResourceCard(Resource resource) {
+    private final Label nameLabel = new Label();
+    private final Label pwdLabel = new Label();
+    // Grown on demand and reused for every resource shown afterwards
+    private final List<Label> linkLabels = new ArrayList<>();
+    private Resource resource;
+
+    public ResourceCard() {
         this.getStyleClass().add("resource-card");
         this.setSpacing(5);
 
-        Label nameLabel = new Label(resource.name() != null ? resource.name() : "未知资源");
         nameLabel.getStyleClass().add("header-label");
         nameLabel.setWrapText(true);
-        this.getChildren().add(nameLabel);
 
-        // Parse content for multiple links
-        String content = resource.getContentString();
-        if (content != null && !content.isEmpty()) {
-            // Split by comma (common separator) or just treat the whole thing as one if no comma
-            // The user input suggests comma separation: url1,url2
-            // We also handle spaces just in case
-            String[] parts = content.split("[,\\s]+"); // Split by comma or whitespace sequences
-            
-            for (String part : parts) {
-                if (part.startsWith("http")) {
-                    Label linkLabel = new Label(part);
-                    linkLabel.getStyleClass().add("link-label");
-                    linkLabel.setWrapText(true);
-                    linkLabel.setStyle("-fx-cursor: hand;");
-                    
-                    linkLabel.setOnMouseClicked(e -> {
-                        openUrl(part, resource.password());
-                        e.consume(); // Prevent bubbling if we keep card click
-                    });
-                    this.getChildren().add(linkLabel);
-                }
-            }
+        pwdLabel.getStyleClass().add("sub-label");
+        // Allow copying password on click
+        pwdLabel.setOnMouseClicked(e -> {
+            ClipboardContent clipboard = new ClipboardContent();
+            clipboard.putString(resource.password());
+            Clipboard.getSystemClipboard().setContent(clipboard);
+        });
+        pwdLabel.setStyle("-fx-cursor: hand;");
+    }
+
+    public ResourceCard(Resource resource) {
+        this();
+        show(resource);
+    }
+
+    /**
+     * Fills the card with {@code resource}, parsing its links now.
+     */
+    public void show(Resource resource) {
+        ResourceCardEvent event = new ResourceCardEvent();
+        event.begin();
+        this.resource = resource;
+        nameLabel.setText(resource.name() != null ? resource.name() : "未知资源");
+
+        List<Node> children = new ArrayList<>();
+        children.add(nameLabel);
+
+        // Parse content for multiple links (comma or whitespace separated)
+        List<String> links = ResourceListing.links(resource.getContentString());
+        for (int i = 0; i < links.size(); i++) {
+            Label linkLabel = i < linkLabels.size() ? linkLabels.get(i) : newLinkLabel();
+            linkLabel.setText(links.get(i));
+            children.add(linkLabel);
         }
 
         if (resource.password() != null && !resource.password().isEmpty()) {
-            Label pwdLabel = new Label("密码: " + resource.password());
-            pwdLabel.getStyleClass().add("sub-label");
-            
-            // Allow copying password on click
-            pwdLabel.setOnMouseClicked(e -> {
-                ClipboardContent clipboard = new ClipboardContent();
-                clipboard.putString(resource.password());
-                Clipboard.getSystemClipboard().setContent(clipboard);
-            });
-            pwdLabel.setStyle("-fx-cursor: hand;"); 
-            
-            this.getChildren().add(pwdLabel);
+            pwdLabel.setText("密码: " + resource.password());
+            children.add(pwdLabel);
+        }
+        this.getChildren().setAll(children);
+
+        if (event.shouldCommit()) {
+            event.resource = resource.name();
+            event.links = links.size();
+            event.commit();
         }
     }
 
+    private Label newLinkLabel() {
+        Label linkLabel = new Label();
+        linkLabel.getStyleClass().add("link-label");
+        linkLabel.setWrapText(true);
+        linkLabel.setStyle("-fx-cursor: hand;");
+
+        linkLabel.setOnMouseClicked(e -> {
+            openUrl(linkLabel.getText(), resource.password());
+            e.consume(); // Prevent bubbling if we keep card click
+        });
+        linkLabels.add(linkLabel);
+        return linkLabel;
+    }
+
     private void openUrl(String rawUrl, String password) {
          try {
             String url = rawUrl;
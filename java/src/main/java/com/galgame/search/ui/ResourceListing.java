@@ -0,0 +1,116 @@
+package com.galgame.search.ui;
+
+import com.galgame.search.model.Resource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The non-visual part of the resource pane: which resources a category shows, in what
+ * order, and which links a resource's content holds. Kept apart from the JavaFX nodes
+ * so it can be measured on its own.
+ *
+ * <p>{@link #of} classifies and scores a resource list once, into per-category lists that
+ * are already sorted, so switching categories is a lookup.
+ */
+public final class ResourceListing {
+
+    public static final String CATEGORY_GAME = "游戏本体";
+    public static final String CATEGORY_PATCH = "补丁资源";
+    public static final String CATEGORY_SAVE = "存档资源";
+
+    // Comma (the usual separator, e.g. url1,url2) or whitespace sequences
+    private static final Pattern LINK_SEPARATOR = Pattern.compile("[,\\s]+");
+
+    private record Scored(Resource resource, int score) {}
+
+    private final List<Resource> game;
+    private final List<Resource> patch;
+    private final List<Resource> save;
+
+    private ResourceListing(List<Resource> game, List<Resource> patch, List<Resource> save) {
+        this.game = game;
+        this.patch = patch;
+        this.save = save;
+    }
+
+    /**
+     * Sorts every resource into its categories, best first, computing each name test and
+     * score once. A name mentioning both patch and save appears in both categories.
+     */
+    public static ResourceListing of(List<Resource> resources) {
+        List<Scored> game = new ArrayList<>();
+        List<Scored> patch = new ArrayList<>();
+        List<Scored> save = new ArrayList<>();
+        for (Resource res : resources) {
+            String name = res.name() == null ? "" : res.name();
+            boolean isPatch = name.contains("补丁");
+            boolean isSave = name.contains("存档");
+            Scored scored = new Scored(res, score(res));
+            if (isPatch) patch.add(scored);
+            if (isSave) save.add(scored);
+            if (!isPatch && !isSave) game.add(scored);
+        }
+        return new ResourceListing(sorted(game), sorted(patch), sorted(save));
+    }
+
+    // 1. (Link & Pwd) -> Priority
+    // 2. Link -> Normal
+    // 3. No Name or Link -> Last
+    // Stable, so equal scores keep the source's order
+    private static List<Resource> sorted(List<Scored> scored) {
+        scored.sort(Comparator.comparingInt(Scored::score).reversed());
+        List<Resource> resources = new ArrayList<>(scored.size());
+        for (Scored s : scored) resources.add(s.resource());
+        return List.copyOf(resources);
+    }
+
+    /**
+     * The resources of a category, best first.
+     */
+    public List<Resource> resources(String category) {
+        if (CATEGORY_PATCH.equals(category)) return patch;
+        if (CATEGORY_SAVE.equals(category)) return save;
+        return game; // 游戏本体
+    }
+
+    /**
+     * The resources of a category, best first. Classifies the whole list; callers that
+     * switch categories should keep a {@link #of} listing instead.
+     */
+    public static List<Resource> select(List<Resource> resources, String category) {
+        return of(resources).resources(category);
+    }
+
+    public static int score(Resource r) {
+        boolean hasName = r.name() != null && !r.name().isEmpty();
+        String content = r.getContentString();
+        boolean hasLink = content != null && !content.isEmpty();
+        boolean hasPwd = r.password() != null && !r.password().isEmpty();
+
+        if (!hasName || !hasLink) return 0;
+
+        // Priority 1: Official TouchGal Pan
+        if (content.contains("pan.touchgal.net")) return 10;
+
+        // Priority 2: Link + Password
+        if (hasPwd) return 2;
+
+        // Priority 3: Link only
+        return 1;
+    }
+
+    /**
+     * The http(s) links in a resource's content, in order.
+     */
+    public static List<String> links(String content) {
+        if (content == null || content.isEmpty()) return List.of();
+        List<String> links = new ArrayList<>();
+        for (String part : LINK_SEPARATOR.split(content)) {
+            if (part.startsWith("http")) links.add(part);
+        }
+        return links;
+    }
+}
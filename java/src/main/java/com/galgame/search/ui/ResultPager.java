@@ -0,0 +1,248 @@
+package com.galgame.search.ui;
+
+import com.galgame.search.metrics.Histogram;
+import com.galgame.search.metrics.MetricsRegistry;
+import com.galgame.search.model.Game;
+import com.galgame.search.model.MergedGame;
+import com.galgame.search.service.AggregatedService;
+import com.galgame.search.service.ResultMerger;
+import com.galgame.search.service.SourceResult;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.skin.VirtualFlow;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Infinite scroll for the result list. Every source is paged on its own: once a row close
+ * to the end becomes visible, the next page of each source that has more is requested,
+ * with at most one page in flight per source so loading stays just ahead of the viewport.
+ * To keep the list short, whole pages far above the viewport are taken out of it, and put
+ * back when the user scrolls up to them.
+ *
+ * <p>Rows are {@link MergedGame}s: a game that is already listed (from another source or
+ * an earlier page) joins that row instead of adding one, so a page block is the rows it created.
+ * Rows taken out stay known to the merger, so games of later pages still join them and they
+ * come back with every member they gained.
+ */
+class ResultPager {
+
+    // Rows before the end (or the top) of the list at which the next page is requested
+    private static final int LOAD_AHEAD_ROWS = 8;
+    // Pages above the viewport are dropped once the list holds more rows than this
+    private static final int MAX_ROWS = 300;
+
+    /** Loads one page of one source, e.g. {@link AggregatedService#searchSourcePage}. */
+    @FunctionalInterface
+    interface PageLoader {
+        CompletableFuture<SourceResult> load(String source, String keyword, int page);
+    }
+
+    /** What the pager needs of the list view besides its items. */
+    interface Viewport {
+        int firstVisibleIndex();
+
+        void scrollTo(int index);
+
+        /** Re-renders the visible rows, e.g. after one gained a member. */
+        void refresh();
+    }
+
+    private record Block(String source, int page, List<MergedGame> rows) {}
+
+    private final PageLoader pages;
+    private final ObservableList<MergedGame> items;
+    private final Viewport viewport;
+    // Runs completions on the FX thread
+    private final Executor fx;
+    private final ResultMerger merger = new ResultMerger();
+    private final Histogram appendTimes;
+
+    private String keyword = "";
+    private int generation = 0;
+    private final Map<String, Integer> nextPage = new LinkedHashMap<>();
+    private final Set<String> loading = new HashSet<>();
+    private final List<CompletableFuture<SourceResult>> pending = new ArrayList<>();
+
+    // Pages currently in the list, top to bottom, and pages dropped above it (nearest last)
+    private final Deque<Block> blocks = new ArrayDeque<>();
+    private final Deque<Block> droppedAbove = new ArrayDeque<>();
+    private boolean restoringAbove = false;
+
+    ResultPager(AggregatedService service, ListView<MergedGame> list) {
+        this(service::searchSourcePage, list.getItems(), new ListViewport(list), Platform::runLater,
+            service.getMetrics().histogram(MetricsRegistry.name("ui.render", "view", "append"),
+                Histogram.Unit.NANOSECONDS));
+    }
+
+    ResultPager(PageLoader pages, ObservableList<MergedGame> items, Viewport viewport, Executor fx,
+                Histogram appendTimes) {
+        this.pages = pages;
+        this.items = items;
+        this.viewport = viewport;
+        this.fx = fx;
+        this.appendTimes = appendTimes;
+    }
+
+    /**
+     * Forgets all paging state and cancels page requests of the previous search.
+     * The caller clears or replaces the list items.
+     */
+    void reset(String keyword) {
+        generation++;
+        pending.forEach(f -> f.cancel(true));
+        pending.clear();
+        this.keyword = keyword;
+        nextPage.clear();
+        loading.clear();
+        blocks.clear();
+        droppedAbove.clear();
+        restoringAbove = false;
+        merger.clear();
+    }
+
+    /**
+     * Appends a successfully loaded page and remembers whether its source has more.
+     */
+    void append(SourceResult result) {
+        long start = System.nanoTime();
+        List<MergedGame> rows = addToMerger(result.games());
+        if (!rows.isEmpty()) {
+            items.addAll(rows);
+            blocks.addLast(new Block(result.source(), result.page(), rows));
+        }
+        if (result.hasMore()) {
+            nextPage.put(result.source(), result.page() + 1);
+        } else {
+            nextPage.remove(result.source());
+        }
+        trimAbove();
+        appendTimes.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Replaces the list with first-page results whose paging state is unknown
+     * (e.g. restored from the snapshot); every source is assumed to have more.
+     */
+    void restore(String keyword, List<Game> games) {
+        reset(keyword);
+        List<MergedGame> rows = new ArrayList<>();
+        int i = 0;
+        while (i < games.size()) {
+            String source = games.get(i).source();
+            int start = i;
+            while (i < games.size() && source.equals(games.get(i).source())) i++;
+            List<MergedGame> created = merger.add(games.subList(start, i)).created();
+            rows.addAll(created);
+            if (!created.isEmpty()) blocks.addLast(new Block(source, 1, created));
+            nextPage.put(source, 2);
+        }
+        items.setAll(rows);
+    }
+
+    /**
+     * Called by the list cells whenever a row is rendered.
+     */
+    void onRowShown(int index) {
+        if (index < 0) return;
+        if (index >= items.size() - LOAD_AHEAD_ROWS) loadMore();
+        if (index < LOAD_AHEAD_ROWS && !droppedAbove.isEmpty()) restoreAbove();
+    }
+
+    private void loadMore() {
+        for (Map.Entry<String, Integer> e : nextPage.entrySet()) {
+            String source = e.getKey();
+            int page = e.getValue();
+            if (!loading.add(source)) continue;
+
+            int startedIn = generation;
+            CompletableFuture<SourceResult> f = pages.load(source, keyword, page);
+            pending.add(f);
+            f.whenComplete((result, ex) -> fx.execute(() -> {
+                if (startedIn != generation) return;
+                pending.remove(f);
+                loading.remove(source);
+                if (ex != null) return;
+                if (result.isSuccess()) {
+                    append(result);
+                } else if (result.status() != SourceResult.Status.CANCELLED) {
+                    // Failed or timed out: the same page is retried the next time the end is reached
+                    nextPage.put(source, page);
+                }
+            }));
+        }
+    }
+
+    private void trimAbove() {
+        int first = viewport.firstVisibleIndex();
+        boolean dropped = false;
+        while (items.size() > MAX_ROWS && blocks.size() > 1) {
+            Block top = blocks.peekFirst();
+            int size = top.rows().size();
+            if (first - size < LOAD_AHEAD_ROWS) break; // Still close to the viewport
+            blocks.pollFirst();
+            items.remove(0, size);
+            droppedAbove.addLast(top);
+            first -= size;
+            dropped = true;
+        }
+        if (dropped) viewport.scrollTo(first);
+    }
+
+    // Deferred, because it is asked for while the list lays out its cells
+    private void restoreAbove() {
+        if (restoringAbove) return;
+        restoringAbove = true;
+        int startedIn = generation;
+        fx.execute(() -> {
+            if (startedIn != generation) return;
+            restoringAbove = false;
+            Block block = droppedAbove.pollLast();
+            if (block == null) return;
+            int first = viewport.firstVisibleIndex();
+            items.addAll(0, block.rows());
+            blocks.addFirst(block);
+            viewport.scrollTo(first + block.rows().size());
+        });
+    }
+
+    // Returns the new rows; rows that gained games are re-rendered to update their source line
+    private List<MergedGame> addToMerger(List<Game> games) {
+        ResultMerger.Added added = merger.add(games);
+        if (added.grewExisting()) viewport.refresh();
+        return added.created();
+    }
+
+    private record ListViewport(ListView<MergedGame> list) implements Viewport {
+
+        @Override
+        public int firstVisibleIndex() {
+            if (list.lookup(".virtual-flow") instanceof VirtualFlow<?> flow) {
+                IndexedCell<?> cell = flow.getFirstVisibleCell();
+                if (cell != null) return cell.getIndex();
+            }
+            return 0;
+        }
+
+        @Override
+        public void scrollTo(int index) {
+            list.scrollTo(index);
+        }
+
+        @Override
+        public void refresh() {
+            list.refresh();
+        }
+    }
+}
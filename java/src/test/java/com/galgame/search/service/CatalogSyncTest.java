@@ -0,0 +1,139 @@
+package com.galgame.search.service;
+
+import com.galgame.search.model.Game;
+import com.galgame.search.model.Resource;
+import com.galgame.search.store.CatalogStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CatalogSyncTest {
+
+    @TempDir
+    Path dir;
+
+    private final StubCatalog source = new StubCatalog();
+    private CatalogStore store;
+    private CatalogSync sync;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new CatalogStore(dir.resolve("catalog.bin"));
+        store.load();
+        CatalogSync.Gateway direct = new CatalogSync.Gateway() {
+            @Override
+            public <T> T call(String sourceName, String operation, Callable<T> call) throws Exception {
+                return call.call();
+            }
+        };
+        sync = new CatalogSync(source, direct, store, dir.resolve("catalog.idx"), Runnable::run, 2, index -> {});
+    }
+
+    @Test
+    void unchangedCatalogueFetchesNoResources() throws Exception {
+        source.put("3", "t1", "a");
+        source.put("2", "t1", "b");
+        source.put("1", "t1", "c");
+        sync.syncOnce();
+        assertEquals(3, source.resourceLoads);
+
+        sync.syncOnce();
+
+        assertEquals(3, source.resourceLoads);
+    }
+
+    @Test
+    void updatedNewestGameIsRefetched() throws Exception {
+        source.put("3", "t1", "a");
+        source.put("2", "t1", "b");
+        source.put("1", "t1", "c");
+        sync.syncOnce();
+
+        // The game the last run stopped at gets new resources but keeps its listing
+        source.put("3", "t2", "a2");
+        sync.syncOnce();
+
+        assertEquals(List.of(resource("a2")), store.resources("3"));
+        assertEquals("t2", store.updatedAt("3"));
+        assertEquals(4, source.resourceLoads);
+    }
+
+    @Test
+    void updatedOlderGameIsRefetchedWhenItMovesUp() throws Exception {
+        source.put("3", "t1", "a");
+        source.put("2", "t1", "b");
+        source.put("1", "t1", "c");
+        sync.syncOnce();
+
+        source.put("1", "t2", "c2");
+        sync.syncOnce();
+
+        assertEquals(List.of(resource("c2")), store.resources("1"));
+        assertEquals(List.of(resource("a")), store.resources("3"));
+    }
+
+    @Test
+    void updateStampSurvivesReload() throws Exception {
+        source.put("1", "t1", "a");
+        sync.syncOnce();
+        store.close();
+
+        CatalogStore reloaded = new CatalogStore(dir.resolve("catalog.bin"));
+        reloaded.load();
+
+        assertEquals("t1", reloaded.updatedAt("1"));
+        reloaded.close();
+    }
+
+    private static Resource resource(String name) {
+        return new Resource(name, "https://example.invalid/" + name, "", "");
+    }
+
+    // A catalogue listed most recently updated first, two games per page
+    private static final class StubCatalog implements BrowsableSource {
+        private static final int PAGE_SIZE = 2;
+        private final List<Listing> listings = new ArrayList<>();
+        private final Map<String, List<Resource>> resources = new HashMap<>();
+        int resourceLoads;
+
+        // Adds or updates a game and moves it to the front, as an update on the site does
+        void put(String id, String updatedAt, String resourceName) {
+            listings.removeIf(l -> l.game().id().equals(id));
+            listings.add(0, new Listing(new Game(id, "Game " + id, "", List.of("windows"), "Stub"), updatedAt));
+            resources.put(id, List.of(resource(resourceName)));
+        }
+
+        @Override
+        public CatalogPage browsePage(int page) {
+            int from = Math.min(listings.size(), (page - 1) * PAGE_SIZE);
+            int to = Math.min(listings.size(), from + PAGE_SIZE);
+            return new CatalogPage(List.copyOf(listings.subList(from, to)), page, to < listings.size());
+        }
+
+        @Override
+        public List<Game> searchGame(String keyword) {
+            return List.of();
+        }
+
+        @Override
+        public List<Resource> getDownloads(String id) {
+            resourceLoads++;
+            return resources.get(id);
+        }
+
+        @Override
+        public String getSourceName() {
+            return "Stub";
+        }
+    }
+}
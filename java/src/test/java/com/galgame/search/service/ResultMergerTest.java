@@ -0,0 +1,72 @@
+package com.galgame.search.service;
+
+import com.galgame.search.model.Game;
+import com.galgame.search.model.MergedGame;
+import com.galgame.search.model.TorrentInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ResultMergerTest {
+
+    @Test
+    void catalogueEntryJoinsItsTorrents() {
+        List<MergedGame> rows = ResultMerger.merge(List.of(
+            catalogue("1", "Summer Pockets"),
+            torrent("[Key] Summer Pockets [汉化]", "aa"),
+            torrent("(同人) Summer Pockets v1.02 (ISO)", "bb")));
+
+        assertEquals(1, rows.size());
+        assertEquals("TouchGal · Nyaa ×2", rows.get(0).sourceSummary());
+    }
+
+    @Test
+    void sameSourceCatalogueEntriesStayApart() {
+        List<MergedGame> rows = ResultMerger.merge(List.of(
+            catalogue("1", "Summer Pockets"),
+            catalogue("2", "Summer Pockets [汉化硬盘版]")));
+
+        assertEquals(2, rows.size());
+    }
+
+    @Test
+    void trialAndDlcAreNotTheFullGame() {
+        List<MergedGame> rows = ResultMerger.merge(List.of(
+            catalogue("1", "Summer Pockets"),
+            catalogue("2", "Summer Pockets (体验版)"),
+            torrent("[Key] Summer Pockets [DLC]", "aa"),
+            torrent("[Key] Summer Pockets (Trial)", "bb"),
+            torrent("[Key] Summer Pockets", "cc")));
+
+        assertEquals(List.of("1", "2", "aa", "bb"), rows.stream().map(r -> r.games().get(0).id()).toList());
+        assertEquals(2, rows.get(0).games().size());
+    }
+
+    @Test
+    void sameTorrentMergesWhateverItsTitle() {
+        List<MergedGame> rows = ResultMerger.merge(List.of(
+            torrent("[A] Summer Pockets", "aa"),
+            torrent("Summer Pockets Reflection Blue", "aa")));
+
+        assertEquals(1, rows.size());
+    }
+
+    @Test
+    void signatureIgnoresReleaseTagsButNotDistinctOnes() {
+        long plain = ResultMerger.signature("Summer Pockets");
+        assertEquals(plain, ResultMerger.signature("[Key] Summer Pockets v1.02 [汉化].7z"));
+        assertNotEquals(plain, ResultMerger.signature("Summer Pockets (体验版)"));
+        assertNotEquals(plain, ResultMerger.signature("[DLC] Summer Pockets"));
+    }
+
+    private static Game catalogue(String id, String name) {
+        return new Game(id, name, "intro", List.of("windows"), "TouchGal");
+    }
+
+    private static Game torrent(String name, String infoHash) {
+        return new Game(infoHash, name, "", List.of(), "Nyaa", new TorrentInfo("1 GiB", infoHash, 1, 0, 1));
+    }
+}
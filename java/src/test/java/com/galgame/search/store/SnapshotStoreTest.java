@@ -0,0 +1,72 @@
+package com.galgame.search.store;
+
+import com.galgame.search.model.Game;
+import com.galgame.search.model.Resource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SnapshotStoreTest {
+
+    // Large enough that none of these tests ever compacts
+    private static final long NO_COMPACTION = 1 << 20;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void searchCountIsCappedWithoutCompaction() throws IOException {
+        SnapshotStore store = new SnapshotStore(dir.resolve("snapshot.bin"), 2, 10, NO_COMPACTION);
+        store.recordSearch("TouchGal", "a", List.of(game("1")));
+        store.recordSearch("TouchGal", "b", List.of(game("2")));
+        store.recordSearch("TouchGal", "c", List.of(game("3")));
+
+        assertEquals(List.of("c", "b"), keywords(store));
+        store.close();
+
+        SnapshotStore reloaded = new SnapshotStore(dir.resolve("snapshot.bin"), 2, 10, NO_COMPACTION);
+        reloaded.load();
+        assertEquals(List.of("c", "b"), keywords(reloaded));
+        reloaded.close();
+    }
+
+    @Test
+    void reRecordingKeepsAKeyAlive() {
+        SnapshotStore store = new SnapshotStore(dir.resolve("snapshot.bin"), 2, 10, NO_COMPACTION);
+        store.recordSearch("TouchGal", "a", List.of());
+        store.recordSearch("TouchGal", "b", List.of());
+        store.recordSearch("TouchGal", "a", List.of());
+        store.recordSearch("TouchGal", "c", List.of());
+
+        assertEquals(List.of("c", "a"), keywords(store));
+        store.close();
+    }
+
+    @Test
+    void resourceListCountIsCappedWithoutCompaction() {
+        SnapshotStore store = new SnapshotStore(dir.resolve("snapshot.bin"), 10, 2, NO_COMPACTION);
+        store.recordResources("TouchGal", "1", List.<Resource>of());
+        store.recordResources("TouchGal", "2", List.<Resource>of());
+        store.recordResources("TouchGal", "3", List.<Resource>of());
+
+        assertNull(store.resources("TouchGal", "1"));
+        assertNotNull(store.resources("TouchGal", "2"));
+        assertNotNull(store.resources("TouchGal", "3"));
+        store.close();
+    }
+
+    private static List<String> keywords(SnapshotStore store) {
+        return store.recentSearches().stream().map(SnapshotStore.SearchEntry::keyword).toList();
+    }
+
+    private static Game game(String id) {
+        return new Game(id, "Game " + id, "", List.of("Windows"), "TouchGal");
+    }
+}
@@ -0,0 +1,135 @@
+package com.galgame.search.ui;
+
+import com.galgame.search.metrics.Histogram;
+import com.galgame.search.model.Game;
+import com.galgame.search.model.MergedGame;
+import com.galgame.search.service.SourceResult;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultPagerTest {
+
+    private static final int PAGES = 30;
+    private static final int PAGE_SIZE = 20;
+    private static final int VISIBLE_ROWS = 10;
+    // Beta lists this Alpha title on a page that arrives after Alpha's first page was dropped
+    private static final int JOINING_BETA_PAGE = 16;
+
+    private final ObservableList<MergedGame> items = FXCollections.observableArrayList();
+    private final Deque<Runnable> fxQueue = new ArrayDeque<>();
+    private final StubViewport viewport = new StubViewport();
+    private final ResultPager pager = new ResultPager(ResultPagerTest::page, items, viewport, fxQueue::add,
+        new Histogram(Histogram.Unit.NANOSECONDS));
+
+    @Test
+    void scrollingDownPastTheCapAndBackUpRestoresEveryRow() {
+        startSearch("k");
+        int maxRows = 0;
+        boolean trimmed = false;
+        for (int step = 0; step < 200; step++) {
+            viewport.first = Math.max(0, items.size() - VISIBLE_ROWS);
+            pager.onRowShown(items.size() - 1);
+            drain();
+            maxRows = Math.max(maxRows, items.size());
+            trimmed |= !items.isEmpty() && !name(items.get(0)).equals(alpha(1, 0));
+        }
+        assertTrue(trimmed, "rows far above the viewport are taken out");
+        assertTrue(maxRows <= 300 + 2 * PAGE_SIZE, "list stays bounded, was " + maxRows);
+
+        for (int step = 0; step < 200 && !name(items.get(0)).equals(alpha(1, 0)); step++) {
+            viewport.first = 0;
+            pager.onRowShown(0);
+            drain();
+        }
+
+        assertEquals(alpha(1, 0), name(items.get(0)));
+        Set<MergedGame> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        distinct.addAll(items);
+        assertEquals(items.size(), distinct.size(), "no row is listed twice");
+        // Every game of both sources is in exactly one row; the joining Beta game adds none
+        assertEquals(2 * PAGES * PAGE_SIZE - 1, items.size());
+        assertEquals("Alpha · Beta", items.get(0).sourceSummary());
+    }
+
+    @Test
+    void newSearchDoesNotBringBackRowsOfTheLastOne() {
+        startSearch("k");
+        for (int step = 0; step < 40; step++) {
+            viewport.first = Math.max(0, items.size() - VISIBLE_ROWS);
+            pager.onRowShown(items.size() - 1);
+            drain();
+        }
+        assertNotEquals(alpha(1, 0), name(items.get(0)));
+
+        startSearch("other");
+        viewport.first = 0;
+        pager.onRowShown(0);
+        drain();
+
+        assertEquals(2 * PAGE_SIZE, items.size());
+    }
+
+    // What the main window does with the first pages of a new search
+    private void startSearch(String keyword) {
+        pager.reset(keyword);
+        items.clear();
+        pager.append(page("Alpha", keyword, 1).join());
+        pager.append(page("Beta", keyword, 1).join());
+    }
+
+    private void drain() {
+        while (!fxQueue.isEmpty()) fxQueue.poll().run();
+    }
+
+    private static CompletableFuture<SourceResult> page(String source, String keyword, int page) {
+        List<Game> games = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            String name = source.equals("Beta") && page == JOINING_BETA_PAGE && i == 0
+                ? alpha(1, 0)
+                : source + " p" + page + " n" + i;
+            games.add(new Game(source + page + "-" + i, name, "", List.of("windows"), source));
+        }
+        return CompletableFuture.completedFuture(
+            new SourceResult(source, games, 0, SourceResult.Status.OK, null, page, page < PAGES));
+    }
+
+    private static String alpha(int page, int i) {
+        return "Alpha p" + page + " n" + i;
+    }
+
+    private static String name(MergedGame row) {
+        return row.primary().name();
+    }
+
+    private static final class StubViewport implements ResultPager.Viewport {
+        int first;
+
+        @Override
+        public int firstVisibleIndex() {
+            return first;
+        }
+
+        @Override
+        public void scrollTo(int index) {
+            first = index;
+        }
+
+        @Override
+        public void refresh() {
+        }
+    }
+}